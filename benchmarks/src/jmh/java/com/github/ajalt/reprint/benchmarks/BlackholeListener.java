@@ -0,0 +1,30 @@
+package com.github.ajalt.reprint.benchmarks;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A listener that consumes every event so that the JIT can't eliminate the dispatch.
+ */
+final class BlackholeListener implements AuthenticationListener {
+    private final Blackhole blackhole;
+
+    BlackholeListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void onSuccess(int moduleTag) {
+        blackhole.consume(moduleTag);
+    }
+
+    @Override
+    public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                          CharSequence errorMessage, int moduleTag, int errorCode) {
+        blackhole.consume(failureReason);
+        blackhole.consume(errorMessage);
+        blackhole.consume(errorCode);
+    }
+}
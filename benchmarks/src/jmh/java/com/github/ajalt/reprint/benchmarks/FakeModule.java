@@ -0,0 +1,61 @@
+package com.github.ajalt.reprint.benchmarks;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.ErrorCodeTable;
+import com.github.ajalt.reprint.engine.AuthenticationRequest;
+import com.github.ajalt.reprint.engine.RestartCondition;
+
+/**
+ * A module that drives requests the same way the real modules do, with a sensor that starts
+ * instantly and codes that mirror the marshmallow module's.
+ */
+final class FakeModule implements AuthenticationRequest.Sensor, AuthenticationRequest.Messages {
+    static final int TAG = 100;
+    static final int ERROR_TIMEOUT = 3;
+    static final int ERROR_LOCKOUT = 7;
+    static final int ACQUIRED_PARTIAL = 1;
+    static final String MESSAGE = "Partial fingerprint detected. Please try again.";
+
+    static final ErrorCodeTable ERROR_CODES = new ErrorCodeTable(
+            new ErrorCodeTable.Entry(AuthenticationFailureReason.UNKNOWN, true, false, ErrorCodeTable.NO_MESSAGE))
+            .put(ERROR_TIMEOUT, new ErrorCodeTable.Entry(AuthenticationFailureReason.TIMEOUT, true, true, ErrorCodeTable.NO_MESSAGE))
+            .put(ERROR_LOCKOUT, new ErrorCodeTable.Entry(AuthenticationFailureReason.LOCKED_OUT, true, false, ErrorCodeTable.NO_MESSAGE));
+
+    static final ErrorCodeTable HELP_CODES = new ErrorCodeTable(
+            new ErrorCodeTable.Entry(AuthenticationFailureReason.SENSOR_FAILED, false, true, ErrorCodeTable.NO_MESSAGE));
+
+    static final RestartCondition ALWAYS_RESTART = new RestartCondition() {
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            return true;
+        }
+    };
+
+    int starts = 0;
+
+    AuthenticationRequest authenticate(AuthenticationListener listener, RestartCondition restartCondition) {
+        final AuthenticationRequest request = new AuthenticationRequest(TAG, this, restartCondition, listener, false);
+        request.start(this);
+        return request;
+    }
+
+    @Override
+    public void start() {
+        starts++;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        task.run();
+    }
+
+    @Override
+    public CharSequence get(int message) {
+        return MESSAGE;
+    }
+}
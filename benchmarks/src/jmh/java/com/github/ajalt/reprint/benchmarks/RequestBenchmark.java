@@ -0,0 +1,52 @@
+package com.github.ajalt.reprint.benchmarks;
+
+import com.github.ajalt.reprint.core.ErrorCodeTable;
+import com.github.ajalt.reprint.engine.AuthenticationRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of starting a request, and of restarting the sensor after timeouts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RequestBenchmark {
+    private static final int RESTARTS = 100;
+
+    private FakeModule module;
+    private BlackholeListener listener;
+    private ErrorCodeTable.Entry timeout;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        module = new FakeModule();
+        listener = new BlackholeListener(blackhole);
+        timeout = FakeModule.ERROR_CODES.get(FakeModule.ERROR_TIMEOUT);
+    }
+
+    @Benchmark
+    public AuthenticationRequest authenticateStart() {
+        return module.authenticate(listener, FakeModule.ALWAYS_RESTART);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESTARTS)
+    public AuthenticationRequest restartLoop() {
+        final AuthenticationRequest request = module.authenticate(listener, FakeModule.ALWAYS_RESTART);
+        for (int i = 0; i < RESTARTS; i++) {
+            request.onFailure(FakeModule.ERROR_TIMEOUT, timeout, "Fingerprint time out reached.");
+        }
+        return request;
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.ajalt.reprint.core;
+
+import android.os.Looper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional settings for a single authentication request.
+ * <p/>
+ * Pass an instance to {@link Reprint#authenticate(AuthenticationListener, Reprint.RestartPredicate,
+ * AuthenticationOptions)}. Don't change an instance after passing it to Reprint.
+ */
+public class AuthenticationOptions {
+    /**
+     * The error code sent with the {@link AuthenticationFailureReason#TIMEOUT} failure when a
+     * request is ended by its {@link #deadline} or {@link #idleTimeout}.
+     */
+    public static final int WATCHDOG_TIMEOUT = -1;
+
+    Looper callbackLooper;
+    long deadlineNanos;
+    long idleTimeoutNanos;
+    long coalesceWindowNanos;
+    boolean continuous;
+
+    /**
+     * Deliver the listener's callbacks on the given looper's thread instead of the main thread.
+     * <p/>
+     * This lets your listener do expensive work, such as cryptographic operations, without blocking
+     * the UI. With modules that implement {@link HandlerReprintModule}, like the Marshmallow
+     * module, the sensor events and restart decisions are also handled on this thread.
+     *
+     * @param looper The looper to deliver callbacks on, or null to use the main thread.
+     */
+    public AuthenticationOptions callbackLooper(Looper looper) {
+        this.callbackLooper = looper;
+        return this;
+    }
+
+    /**
+     * End the request if it hasn't finished within the given time after it was started.
+     * <p/>
+     * When the deadline passes, the sensor is stopped and the listener receives a fatal {@link
+     * AuthenticationFailureReason#TIMEOUT} failure with the error code {@link #WATCHDOG_TIMEOUT}.
+     * This bounds how long a request can take, no matter how often the platform timeout restarts
+     * the sensor.
+     *
+     * @param duration The maximum duration of the request, or 0 for no deadline.
+     */
+    public AuthenticationOptions deadline(long duration, TimeUnit unit) {
+        this.deadlineNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Recycle the sensor if it hasn't reported any events for the given time.
+     * <p/>
+     * When the sensor has been idle for this long, the restart predicate is called with {@link
+     * AuthenticationFailureReason#TIMEOUT}. If it returns true, the sensor is stopped and started
+     * again in the same request. Otherwise the request ends the same way as when its {@link
+     * #deadline} passes.
+     *
+     * @param duration The maximum time between events, or 0 to never recycle the sensor.
+     */
+    public AuthenticationOptions idleTimeout(long duration, TimeUnit unit) {
+        this.idleTimeoutNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Limit how often repeated non-fatal failures are delivered.
+     * <p/>
+     * Some sensors report bursts of identical help events, like partial reads, faster than a UI
+     * can usefully show them. With a window set, a non-fatal failure that repeats the previous one
+     * within the window is held back, and only the newest repeat is delivered when the window
+     * ends. Different failures, successes and fatal failures are always delivered immediately.
+     *
+     * @param window The minimum time between identical non-fatal failures, or 0 to deliver every
+     *               event.
+     */
+    public AuthenticationOptions coalesceHelp(long window, TimeUnit unit) {
+        this.coalesceWindowNanos = unit.toNanos(window);
+        return this;
+    }
+
+    /**
+     * Keep the sensor armed after a success, so that one request can authenticate several times in
+     * a row.
+     * <p/>
+     * Each success is delivered to the listener's {@link AuthenticationListener#onSuccess}, and
+     * the sensor is started again for the next fingerprint without going through the rest of
+     * {@link Reprint#authenticate(AuthenticationListener)}. The request keeps running until it's
+     * cancelled or receives a fatal failure, so remember to cancel it when you're done. A {@link
+     * #deadline} bounds the whole request, not each success.
+     * <p/>
+     * A restart predicate passed to {@link Reprint#authenticate(AuthenticationListener,
+     * Reprint.RestartPredicate, AuthenticationOptions)} is shared by every success, so limits
+     * like {@link RestartPredicates#restartTimeouts} count restarts across the whole request. To
+     * reset them after each success, pass a {@link RestartPolicy} to {@link
+     * Reprint#authenticateWithPolicy(AuthenticationListener, RestartPolicy, AuthenticationOptions)}
+     * instead.
+     *
+     * @param continuous True to keep the request running after a success.
+     */
+    public AuthenticationOptions continuous(boolean continuous) {
+        this.continuous = continuous;
+        return this;
+    }
+}
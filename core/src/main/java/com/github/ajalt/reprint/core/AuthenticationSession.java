@@ -0,0 +1,363 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.engine.RearmCondition;
+import com.github.ajalt.reprint.engine.RestartBackoff;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.core.os.CancellationSignal;
+
+/**
+ * A handle to a single authentication request started with {@link
+ * Reprint#authenticate(AuthenticationListener)}.
+ * <p/>
+ * Only one request can use the fingerprint sensor at a time. Starting a new request cancels the
+ * current one before the new one starts, so the sensor is never left running for a request that
+ * nobody is listening to. A request that is cancelled, either with {@link #cancel()} or by being
+ * replaced, doesn't send any more events to its listener.
+ * <p/>
+ * A request normally finishes at its first success. A request started with {@link
+ * AuthenticationOptions#continuous(boolean)} keeps going, and can deliver any number of successes
+ * until it's cancelled or fails.
+ * <p/>
+ * All methods are safe to call from any thread.
+ */
+public final class AuthenticationSession {
+    // A session moves through these states in order, except that a cancel can move it from any
+    // state before CANCELLING, and a terminal event can end it from STARTING or ACTIVE. Every
+    // transition is a compare-and-set, so exactly one thread wins each race between a cancel and a
+    // terminal event, and the listener sees at most one terminal event.
+    /** Created, but the module hasn't been called yet. The request might be queued. */
+    static final int IDLE = 0;
+    /** The module's authenticate method is running. */
+    static final int STARTING = 1;
+    /** The sensor is running. */
+    static final int ACTIVE = 2;
+    /** A cancel has been requested, and the cancellation signal is being triggered. */
+    static final int CANCELLING = 3;
+    /** Finished with a terminal event or cancelled. The session can't be restarted. */
+    static final int ENDED = 4;
+
+    /** The signal for the running sensor. It's replaced when the watchdog recycles the sensor. */
+    volatile CancellationSignal cancellationSignal;
+    /** The listener that modules send events to. It stops forwarding once the session is over. */
+    final AuthenticationListener listener;
+    /** The event listener that was installed when this session was created, or null. */
+    final ReprintEventListener events;
+    /** The tag of the module that was started for this session, or 0 if none was. */
+    volatile int moduleTag = 0;
+    /** Starts the sensor of the module serving this session, or null if none was started. */
+    volatile SessionSensor sensor;
+    /** The watchdog enforcing this session's timeouts, or null if it doesn't have any. */
+    volatile SessionWatchdog watchdog;
+    /** True if the sensor is started again after each success instead of ending the session. */
+    volatile boolean continuous;
+    /**
+     * The policy that a continuous session takes a new restart predicate from each time it's
+     * armed, or null to keep one predicate for the whole session.
+     */
+    volatile RestartPolicy restartPolicy;
+    /** The wrapper around the restart predicate, or null if the sensor hasn't started. */
+    private volatile InstrumentedPredicate predicate;
+    /** True if the module's request is starting its own sensor again after the latest success. */
+    private volatile boolean moduleRearms = false;
+    final long startNanos = System.nanoTime();
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private volatile int restarts = 0;
+
+    /**
+     * @param preparedSignal A cancellation signal built ahead of time by {@link Reprint#prepare()},
+     *                       or null to create one.
+     */
+    AuthenticationSession(AuthenticationListener listener, ReprintEventListener events,
+                          CancellationSignal preparedSignal) {
+        this.listener = new SessionListener(listener);
+        this.events = events;
+        this.cancellationSignal = preparedSignal != null ? preparedSignal : new CancellationSignal();
+    }
+
+    /**
+     * Cancel this request.
+     * <p/>
+     * If the request has already finished, or has been replaced by a newer request, this call has
+     * no effect. In particular, it never cancels a request other than this one.
+     */
+    public void cancel() {
+        ReprintInternal.INSTANCE.cancel(this);
+    }
+
+    /**
+     * Return true if this request was cancelled, either with {@link #cancel()} or by starting
+     * another request.
+     */
+    public boolean isCanceled() {
+        return cancellationSignal.isCanceled();
+    }
+
+    /**
+     * Return true if this request hasn't finished and hasn't been cancelled.
+     */
+    public boolean isActive() {
+        return state.get() < CANCELLING;
+    }
+
+    /**
+     * Move from IDLE to STARTING.
+     *
+     * @return false if the session was cancelled before it could start.
+     */
+    boolean beginStart() {
+        return state.compareAndSet(IDLE, STARTING);
+    }
+
+    /**
+     * Move from STARTING to ACTIVE, unless the session was cancelled or ended while starting.
+     */
+    void endStart() {
+        state.compareAndSet(STARTING, ACTIVE);
+    }
+
+    /**
+     * Stop the sensor and start it again with a new cancellation signal, without ending the
+     * session. The session is STARTING while this runs, like it is during the first start.
+     * <p/>
+     * This can also be called while the session is starting, when the module fails before its
+     * authenticate call returns. The outer start then finishes the transition to ACTIVE.
+     *
+     * @param sensor Starts the sensor with the current {@link #cancellationSignal}.
+     * @return false if the session had already ended.
+     */
+    boolean restartSensor(Runnable sensor) {
+        final boolean wasActive = state.compareAndSet(ACTIVE, STARTING);
+        if (!wasActive && state.get() != STARTING) return false;
+        final CancellationSignal previous = cancellationSignal;
+        final CancellationSignal next = new CancellationSignal();
+        // Publish the new signal before cancelling the old one, so that a concurrent cancelSignal
+        // either sees the new signal, or sees the state change below and leaves it to us.
+        cancellationSignal = next;
+        cancelQuietly(previous);
+        if (state.get() == STARTING) {
+            sensor.run();
+            if (wasActive) endStart();
+        } else {
+            cancelQuietly(next);
+        }
+        return true;
+    }
+
+    /**
+     * Start the sensor again after a success in a continuous session, with the same cancellation
+     * signal. The signal is still live, since only cancelling the session triggers it.
+     *
+     * @param sensor Starts the sensor with the current {@link #cancellationSignal}.
+     * @return false if the session had already ended, or was being started or cancelled.
+     */
+    boolean rearmSensor(Runnable sensor) {
+        if (!state.compareAndSet(ACTIVE, STARTING)) return false;
+        sensor.run();
+        endStart();
+        return true;
+    }
+
+    /**
+     * Stop the sensor after a terminal event that didn't come from the module.
+     */
+    void stopSensor() {
+        cancelQuietly(cancellationSignal);
+    }
+
+    /**
+     * Move to CANCELLING and then ENDED, triggering the cancellation signal in between.
+     *
+     * @return false if the session had already ended or was already being cancelled.
+     */
+    boolean cancelSignal() {
+        int s;
+        do {
+            s = state.get();
+            if (s >= CANCELLING) return false;
+        } while (!state.compareAndSet(s, CANCELLING));
+
+        if (events != null) events.cancelRequested(this, System.nanoTime());
+        try {
+            cancelQuietly(cancellationSignal);
+        } finally {
+            state.set(ENDED);
+        }
+        stopWatchdog();
+        if (events != null) events.cancelConfirmed(this, System.nanoTime());
+        ReprintInternal.INSTANCE.metrics.recordCancel(moduleTag, restarts);
+        return true;
+    }
+
+    /**
+     * Move to ENDED because of a terminal event.
+     *
+     * @return false if the session had already ended or was cancelled, in which case the event
+     * should be dropped.
+     */
+    private boolean finish() {
+        int s;
+        do {
+            s = state.get();
+            if (s >= CANCELLING) return false;
+        } while (!state.compareAndSet(s, ENDED));
+        stopWatchdog();
+        ReprintInternal.INSTANCE.onFinished(this);
+        return true;
+    }
+
+    private void stopWatchdog() {
+        final SessionWatchdog w = watchdog;
+        if (w != null) w.stop();
+    }
+
+    private void onWatchdogEvent() {
+        final SessionWatchdog w = watchdog;
+        if (w != null) w.onEvent();
+    }
+
+    /**
+     * Wrap a listener that sits between the module and {@link #listener}, so that the watchdog
+     * sees every event from the module, including the ones that the wrapped listener holds back.
+     */
+    AuthenticationListener feedingWatchdog(final AuthenticationListener listener) {
+        return new AuthenticationListener() {
+            @Override
+            public void onSuccess(int moduleTag) {
+                onWatchdogEvent();
+                listener.onSuccess(moduleTag);
+            }
+
+            @Override
+            public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                                  CharSequence errorMessage, int moduleTag, int errorCode) {
+                onWatchdogEvent();
+                listener.onFailure(failureReason, fatal, errorMessage, moduleTag, errorCode);
+            }
+        };
+    }
+
+    private static void cancelQuietly(CancellationSignal signal) {
+        try {
+            signal.cancel();
+        } catch (NullPointerException e) {
+            // Occasionally the cancel call throws an NPE when trying to unparcelize something.
+        }
+    }
+
+    /**
+     * Wrap a restart predicate so that its decisions are counted, and reported to the event
+     * listener. The wrapper passes on the predicate's {@link RestartBackoff}, if it has one.
+     */
+    Reprint.RestartPredicate instrument(Reprint.RestartPredicate restartPredicate) {
+        final InstrumentedPredicate p = new InstrumentedPredicate(restartPredicate);
+        predicate = p;
+        return p;
+    }
+
+    private final class InstrumentedPredicate implements Reprint.RestartPredicate, RestartBackoff, RearmCondition {
+        /** Replaced when a continuous session with a {@link #restartPolicy} is armed again. */
+        volatile Reprint.RestartPredicate restartPredicate;
+
+        InstrumentedPredicate(Reprint.RestartPredicate restartPredicate) {
+            this.restartPredicate = restartPredicate;
+        }
+
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            final boolean restart = restartPredicate.invoke(reason, restartCount);
+            if (restart) restarts++;
+            if (events != null) {
+                events.restartDecision(AuthenticationSession.this, reason, restartCount, restart, System.nanoTime());
+            }
+            return restart;
+        }
+
+        @Override
+        public long restartDelayMillis(AuthenticationFailureReason reason, int restartCount) {
+            final Reprint.RestartPredicate p = restartPredicate;
+            return p instanceof RestartBackoff ? ((RestartBackoff) p).restartDelayMillis(reason, restartCount) : 0;
+        }
+
+        @Override
+        public boolean rearmAfterSuccess() {
+            final boolean rearm = continuous && isActive();
+            moduleRearms = rearm;
+            return rearm;
+        }
+    }
+
+    private final class SessionListener implements AuthenticationListener {
+        private final AuthenticationListener listener;
+        private boolean receivedEvent = false;
+        private boolean receivedHelp = false;
+        /** When the sensor was armed for the next success. */
+        private long armedNanos = startNanos;
+
+        SessionListener(AuthenticationListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onSuccess(int moduleTag) {
+            final boolean continuous = AuthenticationSession.this.continuous;
+            if (continuous ? !isActive() : !finish()) return;
+            if (continuous) onWatchdogEvent();
+            ReprintInternal.INSTANCE.health.recordSuccess(moduleTag);
+            if (events != null) onEvent(null, moduleTag, 0, !continuous);
+            final long now = System.nanoTime();
+            ReprintInternal.INSTANCE.metrics.recordSuccess(moduleTag, now - armedNanos, restarts);
+            listener.onSuccess(moduleTag);
+            if (!continuous) return;
+
+            armedNanos = now;
+            restarts = 0;
+            final RestartPolicy policy = restartPolicy;
+            final InstrumentedPredicate p = predicate;
+            if (policy != null && p != null) p.restartPredicate = policy.newPredicate();
+            // Modules built on AuthenticationRequest keep their sensor armed themselves, with the
+            // same callback and signal. Other modules' requests are over after a success, so start
+            // the sensor again for the next one. The listener might have cancelled the session, in
+            // which case this does nothing.
+            if (moduleRearms) {
+                moduleRearms = false;
+                return;
+            }
+            final SessionSensor s = sensor;
+            if (s != null) rearmSensor(s);
+        }
+
+        @Override
+        public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                              CharSequence errorMessage, int moduleTag, int errorCode) {
+            if (fatal && isActive() && ReprintInternal.INSTANCE.failover(AuthenticationSession.this, failureReason, moduleTag)) {
+                return;
+            }
+            if (fatal ? !finish() : !isActive()) return;
+            onWatchdogEvent();
+            if (events != null) onEvent(failureReason, moduleTag, errorCode, fatal);
+            if (fatal) {
+                if (failureReason == AuthenticationFailureReason.LOCKED_OUT) {
+                    ReprintInternal.INSTANCE.onLockout(moduleTag, errorCode);
+                }
+                ReprintInternal.INSTANCE.metrics.recordFailure(moduleTag, failureReason, restarts);
+            } else if (!receivedHelp) {
+                receivedHelp = true;
+                ReprintInternal.INSTANCE.metrics.recordFirstHelp(moduleTag, System.nanoTime() - startNanos);
+            }
+            listener.onFailure(failureReason, fatal, errorMessage, moduleTag, errorCode);
+        }
+
+        private void onEvent(AuthenticationFailureReason failureReason, int moduleTag, int errorCode, boolean terminal) {
+            final long now = System.nanoTime();
+            if (!receivedEvent) {
+                receivedEvent = true;
+                events.firstEvent(AuthenticationSession.this, now);
+            }
+            if (terminal) {
+                events.terminal(AuthenticationSession.this, failureReason, moduleTag, errorCode, now);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.ajalt.reprint.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards events to another listener, holding back non-fatal failures that repeat the previous
+ * one within a time window.
+ * <p/>
+ * The first failure with a given reason and error code is delivered immediately. Repeats that
+ * arrive before its window ends are held, and only the newest of them is delivered once the window
+ * ends, which starts a new window. A different failure, a success, or a fatal failure replaces the
+ * held event and is delivered immediately.
+ * <p/>
+ * Events arrive on the session's callback thread, and held events are delivered there too.
+ */
+final class CoalescingListener implements AuthenticationListener {
+    private final AuthenticationListener listener;
+    private final long windowNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+
+    // Guarded by this. Events and flushes normally share a thread, but don't have to.
+    private AuthenticationFailureReason lastReason;
+    private int lastErrorCode;
+    private long windowEndNanos;
+    private Held held;
+    private boolean flushScheduled = false;
+
+    CoalescingListener(AuthenticationListener listener, long windowNanos,
+                       ScheduledExecutorService scheduler, Executor callbackExecutor) {
+        this.listener = listener;
+        this.windowNanos = windowNanos;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void onSuccess(int moduleTag) {
+        synchronized (this) {
+            held = null;
+            lastReason = null;
+        }
+        listener.onSuccess(moduleTag);
+    }
+
+    @Override
+    public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                          CharSequence errorMessage, int moduleTag, int errorCode) {
+        synchronized (this) {
+            final long now = System.nanoTime();
+            if (!fatal && failureReason == lastReason && errorCode == lastErrorCode && now - windowEndNanos < 0) {
+                held = new Held(failureReason, errorMessage, moduleTag, errorCode);
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(scheduleFlush, windowEndNanos - now, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+            held = null;
+            lastReason = fatal ? null : failureReason;
+            lastErrorCode = errorCode;
+            windowEndNanos = now + windowNanos;
+        }
+        listener.onFailure(failureReason, fatal, errorMessage, moduleTag, errorCode);
+    }
+
+    private final Runnable scheduleFlush = new Runnable() {
+        @Override
+        public void run() {
+            callbackExecutor.execute(flush);
+        }
+    };
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            final Held h;
+            synchronized (CoalescingListener.this) {
+                flushScheduled = false;
+                h = held;
+                held = null;
+                if (h == null) return;
+                windowEndNanos = System.nanoTime() + windowNanos;
+            }
+            listener.onFailure(h.reason, false, h.message, h.moduleTag, h.errorCode);
+        }
+    };
+
+    private static final class Held {
+        final AuthenticationFailureReason reason;
+        final CharSequence message;
+        final int moduleTag;
+        final int errorCode;
+
+        Held(AuthenticationFailureReason reason, CharSequence message, int moduleTag, int errorCode) {
+            this.reason = reason;
+            this.message = message;
+            this.moduleTag = moduleTag;
+            this.errorCode = errorCode;
+        }
+    }
+}
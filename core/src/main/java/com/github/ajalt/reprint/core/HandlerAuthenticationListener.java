@@ -0,0 +1,46 @@
+package com.github.ajalt.reprint.core;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Forwards events to another listener on a handler's thread.
+ */
+final class HandlerAuthenticationListener implements AuthenticationListener {
+    private final Handler handler;
+    private final AuthenticationListener listener;
+
+    HandlerAuthenticationListener(Handler handler, AuthenticationListener listener) {
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onSuccess(final int moduleTag) {
+        if (Looper.myLooper() == handler.getLooper()) {
+            listener.onSuccess(moduleTag);
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onSuccess(moduleTag);
+            }
+        });
+    }
+
+    @Override
+    public void onFailure(final AuthenticationFailureReason failureReason, final boolean fatal,
+                          final CharSequence errorMessage, final int moduleTag, final int errorCode) {
+        if (Looper.myLooper() == handler.getLooper()) {
+            listener.onFailure(failureReason, fatal, errorMessage, moduleTag, errorCode);
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onFailure(failureReason, fatal, errorMessage, moduleTag, errorCode);
+            }
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.ajalt.reprint.core;
+
+import android.os.Handler;
+
+import androidx.core.os.CancellationSignal;
+
+/**
+ * A reprint module whose api can deliver its events on a given handler's thread.
+ * <p/>
+ * When a request is made with {@link AuthenticationOptions#callbackLooper}, Reprint calls this
+ * method instead of {@link #authenticate(CancellationSignal, AuthenticationListener,
+ * Reprint.RestartPredicate)}, so that events don't have to be posted to the looper one by one.
+ * Events that reach the listener on another thread, such as failures while starting the sensor,
+ * are still posted to the handler.
+ */
+public interface HandlerReprintModule extends ReprintModule {
+    /**
+     * Start a fingerprint authentication request, with events delivered on a handler's thread.
+     *
+     * @param handler The handler that sensor events should be delivered on.
+     * @see #authenticate(CancellationSignal, AuthenticationListener, Reprint.RestartPredicate)
+     */
+    void authenticate(CancellationSignal cancellationSignal, AuthenticationListener listener,
+                      Reprint.RestartPredicate restartPredicate, Handler handler);
+}
@@ -0,0 +1,17 @@
+package com.github.ajalt.reprint.core;
+
+/**
+ * A reprint module that declares which of its error codes mean the sensor is locked out.
+ * <p/>
+ * When a session on one of these modules ends with {@link AuthenticationFailureReason#LOCKED_OUT}
+ * and a lockout code, Reprint fails new requests on the module until the lockout is over, without
+ * starting the sensor. Other {@code LOCKED_OUT} failures are delivered as usual, but aren't
+ * remembered.
+ */
+public interface LockoutReportingModule extends ReprintModule {
+    /**
+     * Return true if the platform reports a lockout after too many failed attempts with this
+     * error code.
+     */
+    boolean isLockoutCode(int errorCode);
+}
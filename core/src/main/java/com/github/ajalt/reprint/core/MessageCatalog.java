@@ -0,0 +1,135 @@
+package com.github.ajalt.reprint.core;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import com.github.ajalt.library.R;
+
+import java.util.Locale;
+
+import androidx.core.os.ConfigurationCompat;
+
+/**
+ * The library's localized fingerprint messages.
+ * <p/>
+ * Failure messages are sent with every failure event, so rather than looking them up in the
+ * resource table each time, all of the messages are resolved at once and reused until the
+ * configuration's locale changes. Checking for a change only compares references, so the lookup
+ * doesn't allocate.
+ */
+public final class MessageCatalog {
+    public static final int ACQUIRED_PARTIAL = 0;
+    public static final int ACQUIRED_INSUFFICIENT = 1;
+    public static final int ACQUIRED_IMAGER_DIRTY = 2;
+    public static final int ACQUIRED_TOO_FAST = 3;
+    public static final int ACQUIRED_TOO_SLOW = 4;
+    public static final int ERROR_HW_NOT_AVAILABLE = 5;
+    public static final int ERROR_NO_SPACE = 6;
+    public static final int ERROR_TIMEOUT = 7;
+    public static final int ERROR_CANCELED = 8;
+    public static final int ERROR_LOCKOUT = 9;
+    public static final int ERROR_UNABLE_TO_PROCESS = 10;
+    public static final int NOT_RECOGNIZED = 11;
+
+    /** The string resource for each message, indexed by the message constants above. */
+    private static final int[] RESOURCES = {
+            R.string.fingerprint_acquired_partial,
+            R.string.fingerprint_acquired_insufficient,
+            R.string.fingerprint_acquired_imager_dirty,
+            R.string.fingerprint_acquired_too_fast,
+            R.string.fingerprint_acquired_too_slow,
+            R.string.fingerprint_error_hw_not_available,
+            R.string.fingerprint_error_no_space,
+            R.string.fingerprint_error_timeout,
+            R.string.fingerprint_error_canceled,
+            R.string.fingerprint_error_lockout,
+            R.string.fingerprint_error_unable_to_process,
+            R.string.fingerprint_not_recognized,
+    };
+
+    /** The default message for each failure reason, indexed by the reason's ordinal. */
+    private static final int[] REASON_MESSAGES = new int[AuthenticationFailureReason.values().length];
+
+    static {
+        REASON_MESSAGES[AuthenticationFailureReason.NO_HARDWARE.ordinal()] = ERROR_HW_NOT_AVAILABLE;
+        REASON_MESSAGES[AuthenticationFailureReason.HARDWARE_UNAVAILABLE.ordinal()] = ERROR_HW_NOT_AVAILABLE;
+        REASON_MESSAGES[AuthenticationFailureReason.NO_FINGERPRINTS_REGISTERED.ordinal()] = NOT_RECOGNIZED;
+        REASON_MESSAGES[AuthenticationFailureReason.SENSOR_FAILED.ordinal()] = ERROR_UNABLE_TO_PROCESS;
+        REASON_MESSAGES[AuthenticationFailureReason.LOCKED_OUT.ordinal()] = ERROR_LOCKOUT;
+        REASON_MESSAGES[AuthenticationFailureReason.TIMEOUT.ordinal()] = ERROR_TIMEOUT;
+        REASON_MESSAGES[AuthenticationFailureReason.AUTHENTICATION_FAILED.ordinal()] = NOT_RECOGNIZED;
+        REASON_MESSAGES[AuthenticationFailureReason.UNKNOWN.ordinal()] = ERROR_HW_NOT_AVAILABLE;
+    }
+
+    private static volatile Table table;
+
+    private MessageCatalog() {
+    }
+
+    /**
+     * Return a message in the current locale.
+     *
+     * @param message One of the message constants in this class.
+     */
+    public static String get(Context context, int message) {
+        return table(context).messages[message];
+    }
+
+    /**
+     * Return the default message for a failure reason in the current locale.
+     */
+    public static String forReason(Context context, AuthenticationFailureReason reason) {
+        return table(context).messages[REASON_MESSAGES[reason.ordinal()]];
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Table table(Context context) {
+        final Resources resources = context.getResources();
+        final Configuration configuration = resources.getConfiguration();
+        Table t = table;
+        // The framework replaces the configuration, or at least its locale field, whenever the
+        // locale changes, so unchanged references mean the messages are still current.
+        if (t != null && t.configuration == configuration && t.configurationLocale == configuration.locale) {
+            return t;
+        }
+
+        final Locale locale = ConfigurationCompat.getLocales(configuration).get(0);
+        // Racing threads may both resolve the table, but they'll produce the same values.
+        if (t == null || !sameLocale(t.locale, locale)) {
+            t = new Table(configuration, locale, resolve(resources));
+        } else {
+            t = new Table(configuration, locale, t.messages);
+        }
+        table = t;
+        return t;
+    }
+
+    private static boolean sameLocale(Locale a, Locale b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static String[] resolve(Resources resources) {
+        final String[] messages = new String[RESOURCES.length];
+        for (int i = 0; i < RESOURCES.length; i++) {
+            messages[i] = resources.getString(RESOURCES[i]);
+        }
+        return messages;
+    }
+
+    private static final class Table {
+        final Configuration configuration;
+        /** The configuration's locale field when the table was built. */
+        final Locale configurationLocale;
+        final Locale locale;
+        final String[] messages;
+
+        @SuppressWarnings("deprecation")
+        Table(Configuration configuration, Locale locale, String[] messages) {
+            this.configuration = configuration;
+            this.configurationLocale = configuration.locale;
+            this.locale = locale;
+            this.messages = messages;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.ajalt.reprint.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores registered modules by their recent module-level failures, so that a module that keeps
+ * failing is passed over in favour of a fallback.
+ * <p/>
+ * A module's score is the number of module-level failures it has had since its last success. A
+ * module is unhealthy once its score reaches {@link #UNHEALTHY_SCORE}, and becomes healthy again
+ * after a success, or after {@link #RECOVERY_NANOS} without another failure, since the failure
+ * might have been transient.
+ */
+final class ModuleHealth {
+    static final int UNHEALTHY_SCORE = 2;
+    static final long RECOVERY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ConcurrentMap<Integer, Score> scores = new ConcurrentHashMap<>();
+
+    /**
+     * Return true if a fatal failure with the given reason means the module itself isn't working,
+     * rather than that the user or the sensor's state caused it.
+     */
+    static boolean isModuleFailure(AuthenticationFailureReason reason) {
+        // SENSOR_FAILED isn't included, since modules also report bad image reads with it.
+        return reason == AuthenticationFailureReason.HARDWARE_UNAVAILABLE
+                || reason == AuthenticationFailureReason.UNKNOWN;
+    }
+
+    void recordSuccess(int moduleTag) {
+        scores.remove(moduleTag);
+    }
+
+    void recordFailure(int moduleTag) {
+        final long now = System.nanoTime();
+        Score current;
+        do {
+            current = scores.get(moduleTag);
+            if (current == null) {
+                if (scores.putIfAbsent(moduleTag, new Score(1, now)) == null) return;
+                continue;
+            }
+        } while (!scores.replace(moduleTag, current, new Score(current.failures + 1, now)));
+    }
+
+    boolean isHealthy(int moduleTag) {
+        final Score score = scores.get(moduleTag);
+        return score == null || score.failures < UNHEALTHY_SCORE
+                || System.nanoTime() - score.lastFailureNanos >= RECOVERY_NANOS;
+    }
+
+    private static final class Score {
+        final int failures;
+        final long lastFailureNanos;
+
+        Score(int failures, long lastFailureNanos) {
+            this.failures = failures;
+            this.lastFailureNanos = lastFailureNanos;
+        }
+    }
+}
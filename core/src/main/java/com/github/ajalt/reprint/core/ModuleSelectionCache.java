@@ -0,0 +1,75 @@
+package com.github.ajalt.reprint.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.content.pm.PackageInfoCompat;
+
+/**
+ * Persists the module chosen by {@link ReprintInternal#initialize(Context, Reprint.Logger)}, so
+ * that later process starts can register it without probing every candidate.
+ * <p/>
+ * An entry is only valid for the device build and app version that wrote it, since either of those
+ * changing can change which module works.
+ */
+final class ModuleSelectionCache {
+    /** The tag stored when no module has hardware present. */
+    static final int NO_MODULE = 0;
+
+    static final String PREFS_NAME = "com.github.ajalt.reprint.module_selection";
+    private static final String KEY_BUILD = "build";
+    private static final String KEY_TAG = "tag";
+    private static final String KEY_HARDWARE_PRESENT = "hardware_present";
+    private static final String KEY_FINGERPRINT_REGISTERED = "fingerprint_registered";
+
+    static final class Entry {
+        final int tag;
+        final ReprintInternal.Capabilities capabilities;
+
+        Entry(int tag, ReprintInternal.Capabilities capabilities) {
+            this.tag = tag;
+            this.capabilities = capabilities;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final String buildKey;
+
+    ModuleSelectionCache(SharedPreferences prefs, String buildKey) {
+        this.prefs = prefs;
+        this.buildKey = buildKey;
+    }
+
+    static ModuleSelectionCache create(Context context, Reprint.Logger logger) {
+        long versionCode = 0;
+        try {
+            versionCode = PackageInfoCompat.getLongVersionCode(
+                    context.getPackageManager().getPackageInfo(context.getPackageName(), 0));
+        } catch (PackageManager.NameNotFoundException | RuntimeException e) {
+            logger.logException(e, "Could not read app version for the module cache");
+        }
+        return new ModuleSelectionCache(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                Build.FINGERPRINT + "/" + versionCode);
+    }
+
+    /**
+     * Return the stored selection, or null if there isn't one for the current build.
+     */
+    Entry read() {
+        if (!buildKey.equals(prefs.getString(KEY_BUILD, null))) return null;
+        return new Entry(prefs.getInt(KEY_TAG, NO_MODULE), new ReprintInternal.Capabilities(
+                prefs.getBoolean(KEY_HARDWARE_PRESENT, false),
+                prefs.getBoolean(KEY_FINGERPRINT_REGISTERED, false)));
+    }
+
+    void write(int tag, ReprintInternal.Capabilities capabilities) {
+        prefs.edit()
+                .putString(KEY_BUILD, buildKey)
+                .putInt(KEY_TAG, tag)
+                .putBoolean(KEY_HARDWARE_PRESENT, capabilities.hardwarePresent)
+                .putBoolean(KEY_FINGERPRINT_REGISTERED, capabilities.fingerprintRegistered)
+                .apply();
+    }
+}
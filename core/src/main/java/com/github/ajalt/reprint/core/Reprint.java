@@ -2,6 +2,10 @@ package com.github.ajalt.reprint.core;
 
 import android.content.Context;
 
+import com.github.ajalt.reprint.engine.RestartCondition;
+
+import java.util.concurrent.Future;
+
 /**
  * Static methods for performing fingerprint authentication.
  * <p/>
@@ -15,7 +19,7 @@ public class Reprint {
         void logException(Throwable throwable, String message);
     }
 
-    public interface RestartPredicate {
+    public interface RestartPredicate extends RestartCondition {
         /**
          * Return true if the authentication should be restarted after the given non-fatal failure.
          *
@@ -23,6 +27,7 @@ public class Reprint {
          * @param restartCount The number of times this authentication call has already been
          *                     restarted.
          */
+        @Override
         boolean invoke(AuthenticationFailureReason reason, int restartCount);
     }
 
@@ -31,6 +36,11 @@ public class Reprint {
      * <p/>
      * This is equivalent to calling {@link #registerModule(ReprintModule)} with the spass module,
      * if included, followed by the marshmallow module.
+     * <p/>
+     * Modules that have hardware but weren't registered are kept as fallbacks. If the registered
+     * module fails with {@link AuthenticationFailureReason#HARDWARE_UNAVAILABLE} or {@link
+     * AuthenticationFailureReason#UNKNOWN}, the request continues on the next fallback instead of
+     * failing. A module that keeps failing is passed over for new requests until it recovers.
      */
     public static void initialize(Context context) {
         ReprintInternal.INSTANCE.initialize(context, null);
@@ -48,6 +58,52 @@ public class Reprint {
         ReprintInternal.INSTANCE.initialize(context, logger);
     }
 
+    /**
+     * Load all available reprint modules on a background thread.
+     * <p/>
+     * This does the same work as {@link #initialize(Context)}, but returns immediately, so that
+     * loading the modules doesn't add to your app's startup time.
+     * <p/>
+     * Calls to {@link #authenticate(AuthenticationListener)} made before the initialization has
+     * finished are queued, and started on the main thread once it finishes. Until then, {@link
+     * #isHardwarePresent()} and {@link #hasFingerprintRegistered()} will return false.
+     *
+     * @return A future that completes once the modules have been loaded.
+     */
+    public static Future<Void> initializeAsync(Context context) {
+        return ReprintInternal.INSTANCE.initializeAsync(context, null);
+    }
+
+    /**
+     * Load all available reprint modules on a background thread.
+     *
+     * @param logger An optional logger instance that will receive log messages from Reprint.
+     * @return A future that completes once the modules have been loaded.
+     * @see #initializeAsync(Context)
+     */
+    public static Future<Void> initializeAsync(Context context, Logger logger) {
+        return ReprintInternal.INSTANCE.initializeAsync(context, logger);
+    }
+
+    /**
+     * Get ready for an authentication request on a background thread, so that the next call to
+     * {@link #authenticate(AuthenticationListener)} only has to start the sensor.
+     * <p/>
+     * This resolves the module's system service, checks whether fingerprints are registered, and
+     * builds the objects for the next request. Call it when a screen that will authenticate opens,
+     * from {@code onResume} or later, since resuming an activity discards the cached enrollment
+     * state. The prepared objects are used by the next request only.
+     * <p/>
+     * The time saved shows up as the difference between {@link
+     * ReprintMetrics.Snapshot#coldStartLatencyMicros} and {@link
+     * ReprintMetrics.Snapshot#warmStartLatencyMicros}.
+     *
+     * @return A future that completes once the preparation is done.
+     */
+    public static Future<Void> prepare() {
+        return ReprintInternal.INSTANCE.prepare();
+    }
+
     /**
      * Register an individual spass module.
      * <p/>
@@ -57,6 +113,9 @@ public class Reprint {
      * <p/>
      * Registering the same module twice will have no effect. The original module instance will
      * remain registered.
+     * <p/>
+     * The registered module replaces any module registered before it, including the fallbacks
+     * found by {@link #initialize(Context)}, so it's the only module that will be used.
      *
      * @param module The module to register.
      */
@@ -66,6 +125,9 @@ public class Reprint {
 
     /**
      * Return true if a reprint module is registered that has a fingerprint reader.
+     * <p/>
+     * The result is cached along with {@link #hasFingerprintRegistered()}, so this is cheap to call
+     * repeatedly. See {@link #invalidateCapabilities()}.
      */
     public static boolean isHardwarePresent() {
         return ReprintInternal.INSTANCE.isHardwarePresent();
@@ -73,11 +135,61 @@ public class Reprint {
 
     /**
      * Return true if a reprint module is registered that has registered fingerprints.
+     * <p/>
+     * The result is cached along with {@link #isHardwarePresent()}, so this is cheap to call
+     * repeatedly. See {@link #invalidateCapabilities()}.
      */
     public static boolean hasFingerprintRegistered() {
         return ReprintInternal.INSTANCE.hasFingerprintRegistered();
     }
 
+    /**
+     * Discard the cached results of {@link #isHardwarePresent()} and {@link
+     * #hasFingerprintRegistered()}, so that the next call queries the module again.
+     * <p/>
+     * If you called {@link #initialize(Context)}, the cache is invalidated automatically each time
+     * one of your activities resumes, which covers the user enrolling fingerprints in the system
+     * settings. You only need to call this if you have some other reason to think the enrollment
+     * state has changed.
+     */
+    public static void invalidateCapabilities() {
+        ReprintInternal.INSTANCE.invalidateCapabilities();
+    }
+
+    /**
+     * Return the number of milliseconds until the fingerprint sensor can be used again after a
+     * lockout, or 0 if it isn't locked out.
+     * <p/>
+     * After too many failed attempts, the sensor is locked for about 30 seconds. Until then, {@link
+     * #authenticate(AuthenticationListener)} fails immediately with {@link
+     * AuthenticationFailureReason#LOCKED_OUT}, without starting the sensor. The value only changes
+     * when a request is locked out or time passes, so a UI can count down from it without polling.
+     * <p/>
+     * Lockouts are only tracked for modules that implement {@link LockoutReportingModule}.
+     */
+    public static long lockoutRemainingMillis() {
+        return ReprintInternal.INSTANCE.lockoutRemainingMillis();
+    }
+
+    /**
+     * Return the registry of outcome counts and latency distributions that Reprint records for
+     * every authentication session.
+     */
+    public static ReprintMetrics metrics() {
+        return ReprintInternal.INSTANCE.metrics;
+    }
+
+    /**
+     * Install a listener that receives timing events for module probes and authentication
+     * sessions, or pass null to remove it.
+     * <p/>
+     * A session reports its events to the listener that was installed when it started. When no
+     * listener is installed, each hook costs a single null check.
+     */
+    public static void setEventListener(ReprintEventListener listener) {
+        ReprintInternal.INSTANCE.setEventListener(listener);
+    }
+
     /**
      * Start a fingerprint authentication request.
      * <p/>
@@ -85,9 +197,10 @@ public class Reprint {
      * {@link RestartPredicates#defaultPredicate()}
      *
      * @param listener The listener that will be notified of authentication events.
+     * @return A handle that can cancel this request.
      */
-    public static void authenticate(AuthenticationListener listener) {
-        authenticate(listener, RestartPredicates.defaultPredicate());
+    public static AuthenticationSession authenticate(AuthenticationListener listener) {
+        return authenticate(listener, RestartPredicates.defaultPredicate());
     }
 
     /**
@@ -98,15 +211,53 @@ public class Reprint {
      * boolean, CharSequence, int, int)} will immediately be called with the corresponding failure
      * reason. In this case, errorMessage will be non-null, fatal will be true, and the other values
      * are unspecified.
+     * <p/>
+     * If another request is running, it is cancelled before this one starts. Its listener will not
+     * receive any more events.
      *
      * @param listener         The listener that will be notified of authentication events.
      * @param restartPredicate A predicate that will be called after each failure. If it returns
      *                         true, the fingerprint sensor will remain active and the listener will
      *                         not be called. If it returns false, the sensor will be turned off and
      *                         onFailure will be called.
+     * @return A handle that can cancel this request.
+     */
+    public static AuthenticationSession authenticate(AuthenticationListener listener, RestartPredicate restartPredicate) {
+        return ReprintInternal.INSTANCE.authenticate(listener, restartPredicate, null);
+    }
+
+    /**
+     * Start a fingerprint authentication request with custom options.
+     *
+     * @param listener         The listener that will be notified of authentication events.
+     * @param restartPredicate A predicate that will be called after each failure.
+     * @param options          Optional settings for this request, such as the thread to deliver
+     *                         events on. May be null.
+     * @return A handle that can cancel this request.
+     * @see #authenticate(AuthenticationListener, RestartPredicate)
+     */
+    public static AuthenticationSession authenticate(AuthenticationListener listener, RestartPredicate restartPredicate,
+                                                     AuthenticationOptions options) {
+        return ReprintInternal.INSTANCE.authenticate(listener, restartPredicate, options);
+    }
+
+    /**
+     * Start a fingerprint authentication request that restarts the sensor according to a policy.
+     * <p/>
+     * The request uses a new predicate from {@link RestartPolicy#newPredicate()}. A {@link
+     * AuthenticationOptions#continuous continuous} request gets another new predicate each time
+     * it's armed after a success, so the policy's limits apply to each fingerprint rather than to
+     * the whole request.
+     *
+     * @param listener      The listener that will be notified of authentication events.
+     * @param restartPolicy The policy that decides whether to restart the sensor after a failure.
+     * @param options       Optional settings for this request. May be null.
+     * @return A handle that can cancel this request.
+     * @see #authenticate(AuthenticationListener, RestartPredicate)
      */
-    public static void authenticate(AuthenticationListener listener, RestartPredicate restartPredicate) {
-        ReprintInternal.INSTANCE.authenticate(listener, restartPredicate);
+    public static AuthenticationSession authenticateWithPolicy(AuthenticationListener listener, RestartPolicy restartPolicy,
+                                                               AuthenticationOptions options) {
+        return ReprintInternal.INSTANCE.authenticateWithPolicy(listener, restartPolicy, options);
     }
 
     /**
@@ -116,15 +267,18 @@ public class Reprint {
      * failures.
      *
      * @param listener The listener that will be notified of authentication events.
+     * @return A handle that can cancel this request.
      */
-    public static void authenticateWithoutRestart(AuthenticationListener listener) {
-        ReprintInternal.INSTANCE.authenticate(listener, RestartPredicates.neverRestart());
+    public static AuthenticationSession authenticateWithoutRestart(AuthenticationListener listener) {
+        return ReprintInternal.INSTANCE.authenticate(listener, RestartPredicates.neverRestart(), null);
     }
 
     /**
-     * Cancel any active authentication requests.
+     * Cancel the active authentication request, whichever one it is.
      * <p/>
-     * If no authentication is active, this call has no effect.
+     * This includes a request that is queued waiting for {@link #initializeAsync(Context)} to
+     * finish. If no authentication is active, this call has no effect. To cancel a specific
+     * request, use {@link AuthenticationSession#cancel()}.
      */
     public static void cancelAuthentication() {
         ReprintInternal.INSTANCE.cancelAuthentication();
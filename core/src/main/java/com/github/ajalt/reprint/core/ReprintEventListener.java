@@ -0,0 +1,102 @@
+package com.github.ajalt.reprint.core;
+
+/**
+ * Receives timing events from inside Reprint, for profiling and metrics.
+ * <p/>
+ * Install a listener with {@link Reprint#setEventListener(ReprintEventListener)}. All of the
+ * methods do nothing by default, so override only the ones you need.
+ * <p/>
+ * Every method receives a timestamp from {@link System#nanoTime()} taken when the event happened,
+ * so timestamps are only meaningful relative to each other. Methods may be called on any thread,
+ * and are called inline with the event they describe, so they should return quickly.
+ */
+public abstract class ReprintEventListener {
+    /**
+     * Initialization is about to look up the {@link ReprintModuleProvider}s listed in
+     * META-INF/services.
+     */
+    public void discoveryStart(long nanoTime) {
+    }
+
+    /**
+     * Initialization finished looking up the module providers.
+     *
+     * @param providerCount The number of providers that were found.
+     */
+    public void discoveryEnd(int providerCount, long nanoTime) {
+    }
+
+    /**
+     * A module is about to be asked whether its hardware is present.
+     */
+    public void probeStart(ReprintModule module, long nanoTime) {
+    }
+
+    /**
+     * A module finished checking whether its hardware is present.
+     */
+    public void probeEnd(ReprintModule module, boolean hardwarePresent, long nanoTime) {
+    }
+
+    /**
+     * {@link Reprint#prepare()} started its work on the background thread.
+     */
+    public void prepareStart(long nanoTime) {
+    }
+
+    /**
+     * {@link Reprint#prepare()} finished.
+     *
+     * @param ready True if a module with hardware and registered fingerprints is ready to start.
+     */
+    public void prepareEnd(boolean ready, long nanoTime) {
+    }
+
+    /**
+     * {@link Reprint#authenticate(AuthenticationListener)} was called.
+     */
+    public void authenticateStart(AuthenticationSession session, long nanoTime) {
+    }
+
+    /**
+     * A module is about to start its sensor for a session. Restarts are reported with {@link
+     * #restartDecision}.
+     */
+    public void sensorStart(AuthenticationSession session, int moduleTag, long nanoTime) {
+    }
+
+    /**
+     * The first event from the module for a session was received.
+     */
+    public void firstEvent(AuthenticationSession session, long nanoTime) {
+    }
+
+    /**
+     * The restart predicate decided whether a session continues after a failure.
+     */
+    public void restartDecision(AuthenticationSession session, AuthenticationFailureReason reason,
+                                int restartCount, boolean restart, long nanoTime) {
+    }
+
+    /**
+     * A session is about to be cancelled, either directly or by starting another session.
+     */
+    public void cancelRequested(AuthenticationSession session, long nanoTime) {
+    }
+
+    /**
+     * The cancellation signal for a session has been triggered.
+     */
+    public void cancelConfirmed(AuthenticationSession session, long nanoTime) {
+    }
+
+    /**
+     * A session finished with a success or fatal failure. Successes of a continuous session
+     * don't finish it, so they aren't reported here.
+     *
+     * @param failureReason The reason for the failure, or null if the session succeeded.
+     */
+    public void terminal(AuthenticationSession session, AuthenticationFailureReason failureReason,
+                         int moduleTag, int errorCode, long nanoTime) {
+    }
+}
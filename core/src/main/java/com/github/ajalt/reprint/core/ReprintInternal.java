@@ -1,12 +1,35 @@
 package com.github.ajalt.reprint.core;
 
+import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
-import com.github.ajalt.library.R;
 import com.github.ajalt.reprint.module.marshmallow.MarshmallowReprintModule;
 
-import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import androidx.core.os.CancellationSignal;
@@ -25,100 +48,806 @@ enum ReprintInternal {
         public void logException(Throwable throwable, String message) {}
     };
 
-    private static final String REPRINT_SPASS_MODULE = "com.github.ajalt.reprint.module.spass.SpassReprintModule";
-    private AtomicReference<CancellationSignal> cancellationSignal = new AtomicReference<>();
-    private ReprintModule module;
-    private Context context;
+    /** The tag of the SpassReprintModule, which lives in a separate artifact. */
+    private static final int SPASS_MODULE_TAG = 2;
+    /** Candidates are probed on this many threads, plus the thread running the selection. */
+    private static final int PROBE_THREADS = 2;
+    /** The maximum number of modules kept as fallbacks for the registered module. */
+    private static final int MAX_FALLBACKS = 3;
+    /** How long the platform keeps the sensor locked after too many failed attempts. */
+    static final long LOCKOUT_DURATION_MILLIS = 30000;
+    private final AtomicReference<AuthenticationSession> currentSession = new AtomicReference<>();
+    /**
+     * The registered module. Always read it once into a local, since it can change at any time.
+     * Cleared in tests.
+     */
+    final AtomicReference<ReprintModule> module = new AtomicReference<>();
+    /**
+     * Modules to fail over to if the registered module fails at runtime, in the order to try them.
+     * Replaced as a whole, never modified.
+     */
+    private volatile List<ReprintModule> fallbacks = Collections.emptyList();
+    final ModuleHealth health = new ModuleHealth();
+    private volatile Context context;
+    /** The cached capabilities of the registered module, or null if they need to be probed. */
+    private volatile Capabilities capabilities;
+    private boolean lifecycleCallbacksRegistered;
+    private ExecutorService executor;
+    private ExecutorService probeExecutor;
+    private ScheduledExecutorService timerExecutor;
+    /** Runs session watchdog checks for sessions without a callback looper. Replaced in tests. */
+    Executor mainThreadExecutor;
+    private final Object pendingLock = new Object();
+    /** Requests made while an async initialization is running, or null if none is running. */
+    private volatile List<Runnable> pendingRequests;
+    private volatile ReprintEventListener eventListener;
+    /** The most recent lockout reported by a module, or null if there hasn't been one. */
+    private volatile Lockout lockout;
+    /** A cancellation signal built by {@link #prepare()} for the next session, or null. */
+    private final AtomicReference<CancellationSignal> preparedSignal = new AtomicReference<>();
+    final ReprintMetrics metrics = new ReprintMetrics();
+
+    /**
+     * Run {@link #initialize(Context, Reprint.Logger)} on a background thread.
+     * <p/>
+     * Authentication requests made before it finishes are queued, and started on the main thread
+     * once it does.
+     */
+    public Future<Void> initializeAsync(final Context context, final Reprint.Logger logger) {
+        this.context = context.getApplicationContext();
+        registerLifecycleCallbacks(this.context);
+
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        synchronized (pendingLock) {
+            if (pendingRequests == null) pendingRequests = new ArrayList<>();
+        }
+
+        final FutureTask<Void> task = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    initialize(context, logger);
+                } finally {
+                    startPendingRequests(mainHandler);
+                }
+            }
+        }, null);
+        executor().execute(task);
+        return task;
+    }
+
+    private void startPendingRequests(Handler handler) {
+        final List<Runnable> requests;
+        synchronized (pendingLock) {
+            requests = pendingRequests;
+            pendingRequests = null;
+        }
+        if (requests == null) return;
+        for (Runnable request : requests) {
+            handler.post(request);
+        }
+    }
+
+    /** Runs initialization, prepare and revalidation work, which can block for a long time. */
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(daemonThreads("Reprint"));
+        }
+        return executor;
+    }
+
+    /**
+     * Runs session timers. It has its own thread so that slow probes on the {@link #executor()}
+     * can't delay a watchdog past its deadline. Tasks must only hop to another thread.
+     */
+    private synchronized ScheduledExecutorService timerExecutor() {
+        if (timerExecutor == null) {
+            timerExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("Reprint timer"));
+        }
+        return timerExecutor;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private synchronized Executor mainThreadExecutor() {
+        if (mainThreadExecutor == null) {
+            mainThreadExecutor = handlerExecutor(new Handler(Looper.getMainLooper()));
+        }
+        return mainThreadExecutor;
+    }
+
+    private static Executor handlerExecutor(final Handler handler) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    /**
+     * Do the work that {@link #authenticate} would otherwise do before starting the sensor, on the
+     * background thread.
+     */
+    public Future<Void> prepare() {
+        final FutureTask<Void> task = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                final ReprintEventListener events = eventListener;
+                if (events != null) events.prepareStart(System.nanoTime());
+
+                // Probing resolves the module's system service and checks the enrollment, and the
+                // result stays cached until an activity resumes.
+                final Capabilities capabilities = capabilities();
+                final Context context = ReprintInternal.this.context;
+                if (context != null) MessageCatalog.forReason(context, AuthenticationFailureReason.TIMEOUT);
+
+                final CancellationSignal signal = new CancellationSignal();
+                // The framework signal that the marshmallow module passes to the system is created
+                // lazily.
+                if (Build.VERSION.SDK_INT >= 16) signal.getCancellationSignalObject();
+                preparedSignal.set(signal);
+
+                if (events != null) {
+                    events.prepareEnd(capabilities.hardwarePresent && capabilities.fingerprintRegistered, System.nanoTime());
+                }
+            }
+        }, null);
+        // If an async initialization is running, this runs after it on the same thread.
+        executor().execute(task);
+        return task;
+    }
 
     public void initialize(Context context, Reprint.Logger logger) {
         this.context = context.getApplicationContext();
+        registerLifecycleCallbacks(this.context);
+
+        if (module.get() != null) return;
+
+        if (logger == null) logger = ReprintInternal.NULL_LOGGER;
+
+        final List<ReprintModuleProvider> providers = loadModuleProviders(logger);
+        final ModuleSelectionCache cache = ModuleSelectionCache.create(this.context, logger);
+        final ModuleSelectionCache.Entry cached = cache.read();
+
+        if (cached != null && registerCachedModule(cached, providers, logger)) {
+            revalidateModuleSelection(cache, cached, providers, logger);
+            return;
+        }
+
+        final List<ReprintModule> selected = selectModules(this.context, logger, providers);
+        // The selected modules have already been probed, so skip registerModule. If another thread
+        // registered a module while we were probing, it takes precedence.
+        if (!selected.isEmpty() && module.compareAndSet(null, selected.get(0))) {
+            setFallbacks(selected);
+        }
+        revalidateModuleSelection(cache, null, providers, logger);
+    }
+
+    /**
+     * Register the module that was selected on a previous run without probing any candidates.
+     *
+     * @return false if the cached module couldn't be created, and a full selection is needed.
+     */
+    private boolean registerCachedModule(ModuleSelectionCache.Entry cached,
+                                         List<ReprintModuleProvider> providers,
+                                         Reprint.Logger logger) {
+        if (cached.tag == ModuleSelectionCache.NO_MODULE) {
+            return true;
+        }
+
+        final ReprintModule cachedModule = createModule(cached.tag, context, logger, providers);
+        if (cachedModule == null) return false;
+        if (module.compareAndSet(null, cachedModule)) {
+            capabilities = cached.capabilities.forModule(cachedModule);
+        }
+        return true;
+    }
+
+    /**
+     * Run the full module selection on the background thread, and update the registered module and
+     * the cache if they're stale.
+     */
+    private void revalidateModuleSelection(final ModuleSelectionCache cache,
+                                           final ModuleSelectionCache.Entry cached,
+                                           final List<ReprintModuleProvider> providers,
+                                           final Reprint.Logger logger) {
+        final ReprintModule registered = module.get();
+        executor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ReprintModule current = registered;
+                // The first selection has already been done if there was no cache entry.
+                if (cached != null) {
+                    final List<ReprintModule> selected = selectModules(context, logger, providers);
+                    final ReprintModule primary = selected.isEmpty() ? null : selected.get(0);
+                    // Don't replace a module that the app registered itself in the meantime.
+                    if (tagOf(primary) != tagOf(registered) && module.compareAndSet(registered, primary)) {
+                        logger.log("Cached reprint module is stale, replacing it");
+                        current = primary;
+                    }
+                    // The cache only records the registered module, so this is the first time
+                    // the fallbacks are known.
+                    if (module.get() == current && tagOf(primary) == tagOf(current)) {
+                        setFallbacks(selected);
+                    }
+                    invalidateCapabilities();
+                }
+
+                final Capabilities capabilities = capabilities();
+                if (cached == null || cached.tag != tagOf(current) || !cached.capabilities.equals(capabilities)) {
+                    cache.write(tagOf(current), capabilities);
+                }
+            }
+        });
+    }
+
+    private static int tagOf(ReprintModule module) {
+        return module == null ? ModuleSelectionCache.NO_MODULE : module.tag();
+    }
+
+    /**
+     * Probe all candidate modules and return the ones that have hardware present, with the one that
+     * should be registered first, followed by the fallbacks in the order to try them.
+     */
+    private List<ReprintModule> selectModules(final Context context, final Reprint.Logger logger,
+                                              final List<ReprintModuleProvider> providers) {
+        final List<Callable<ReprintModule>> candidates = new ArrayList<>();
+
+        // Like registerModule, later modules take precedence.
+        for (int i = providers.size() - 1; i >= 0; i--) {
+            final ReprintModuleProvider provider = providers.get(i);
+            if (provider.tag() == SPASS_MODULE_TAG) continue;
+            candidates.add(new Callable<ReprintModule>() {
+                @Override
+                public ReprintModule call() {
+                    return createModule(provider, context, logger);
+                }
+            });
+        }
 
         // The SPass module doesn't work below API 17, and the Imprint module obviously requires
         // Marshmallow.
-        if (module != null || Build.VERSION.SDK_INT < 17) return;
+        if (Build.VERSION.SDK_INT >= 17) {
+            addBuiltInCandidates(context, logger, providers, candidates);
+        }
+        return probeInParallel(candidates, logger);
+    }
 
-        if (logger == null) logger = ReprintInternal.NULL_LOGGER;
+    private static void addBuiltInCandidates(final Context context, final Reprint.Logger logger,
+                                             final List<ReprintModuleProvider> providers,
+                                             List<Callable<ReprintModule>> candidates) {
+        final Callable<ReprintModule> spass = new Callable<ReprintModule>() {
+            @Override
+            public ReprintModule call() {
+                return createModule(SPASS_MODULE_TAG, context, logger, providers);
+            }
+        };
 
         // Only use the Spass module on APIs that don't support Imprint.
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
-            registerSpassModule(context, logger);
+            candidates.add(spass);
+            return;
         }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            MarshmallowReprintModule marshmallowModule = new MarshmallowReprintModule(context, logger);
+        candidates.add(new Callable<ReprintModule>() {
+            @Override
+            public ReprintModule call() {
+                return new MarshmallowReprintModule(context, logger);
+            }
+        });
+
+        // Some phones like the Galaxy S5 run marshmallow, but only work with Spass. On phones that
+        // support both, Spass is a fallback for when the marshmallow module fails.
+        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.M) {
+            candidates.add(spass);
+        }
+    }
 
-            // Some phones like the Galaxy S5 run marshmallow, but only work with Spass
-            if (Build.VERSION.SDK_INT == Build.VERSION_CODES.M && !marshmallowModule.isHardwarePresent()) {
-                registerSpassModule(context, logger);
-            } else {
-                registerModule(marshmallowModule);
+    /**
+     * Create and probe every candidate at the same time, so that selection takes as long as the
+     * slowest probe instead of the sum of them.
+     *
+     * @param candidates Create the candidate modules, in priority order. They may return null.
+     * @return The candidates that have hardware present, in the same order.
+     */
+    List<ReprintModule> probeInParallel(List<Callable<ReprintModule>> candidates, Reprint.Logger logger) {
+        final List<FutureTask<ReprintModule>> tasks = new ArrayList<>(candidates.size());
+        for (final Callable<ReprintModule> candidate : candidates) {
+            tasks.add(new FutureTask<>(new Callable<ReprintModule>() {
+                @Override
+                public ReprintModule call() throws Exception {
+                    final ReprintModule module = candidate.call();
+                    return module != null && probeHardware(module) ? module : null;
+                }
+            }));
+        }
+        // This thread would otherwise just wait, so it probes the last candidate itself.
+        for (int i = 0; i < tasks.size() - 1; i++) {
+            probeExecutor().execute(tasks.get(i));
+        }
+        if (!tasks.isEmpty()) tasks.get(tasks.size() - 1).run();
+
+        final List<ReprintModule> present = new ArrayList<>();
+        for (FutureTask<ReprintModule> task : tasks) {
+            try {
+                final ReprintModule module = task.get();
+                if (module != null) present.add(module);
+            } catch (ExecutionException e) {
+                logger.logException(e.getCause(), "Could not probe reprint module");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return present;
+    }
+
+    private synchronized ExecutorService probeExecutor() {
+        if (probeExecutor == null) {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(PROBE_THREADS, PROBE_THREADS,
+                    1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), daemonThreads("Reprint probe"));
+            // Probing only happens during initialization, so don't keep the threads around.
+            pool.allowCoreThreadTimeOut(true);
+            probeExecutor = pool;
+        }
+        return probeExecutor;
+    }
+
+    private boolean probeHardware(ReprintModule module) {
+        final ReprintEventListener events = eventListener;
+        if (events == null) return module.isHardwarePresent();
+
+        events.probeStart(module, System.nanoTime());
+        final boolean present = module.isHardwarePresent();
+        events.probeEnd(module, present, System.nanoTime());
+        return present;
+    }
+
+    private static ReprintModule createModule(int tag, Context context, Reprint.Logger logger,
+                                              List<ReprintModuleProvider> providers) {
+        if (tag == MarshmallowReprintModule.TAG) {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? new MarshmallowReprintModule(context, logger) : null;
+        }
+        for (ReprintModuleProvider provider : providers) {
+            if (provider.tag() == tag) {
+                return createModule(provider, context, logger);
             }
         }
+        return null;
     }
 
-    private void registerSpassModule(Context context, Reprint.Logger logger) {
+    private static ReprintModule createModule(ReprintModuleProvider provider, Context context, Reprint.Logger logger) {
         try {
-            final Class<?> spassModuleClass = Class.forName(REPRINT_SPASS_MODULE);
-            final Constructor<?> constructor = spassModuleClass.getConstructor(Context.class, Reprint.Logger.class);
-            ReprintModule module = (ReprintModule) constructor.newInstance(context, logger);
-            registerModule(module);
-        } catch (Exception ignored) {
+            return provider.create(context, logger);
+        } catch (Exception e) {
+            logger.logException(e, "Could not create module with tag " + provider.tag());
+            return null;
         }
     }
 
-    public void registerModule(ReprintModule module) {
-        if (module == null || this.module != null && module.tag() == this.module.tag()) {
-            return;
+    /**
+     * Find all {@link ReprintModuleProvider}s listed in META-INF/services, and report how long it
+     * took to the event listener.
+     */
+    List<ReprintModuleProvider> loadModuleProviders(Reprint.Logger logger) {
+        final ReprintEventListener events = eventListener;
+        if (events != null) events.discoveryStart(System.nanoTime());
+        final List<ReprintModuleProvider> providers = new ArrayList<>();
+        // This exact form of the call is what R8 needs to replace the lookup with constructor calls.
+        final Iterator<ReprintModuleProvider> iterator = ServiceLoader.load(
+                ReprintModuleProvider.class, ReprintModuleProvider.class.getClassLoader()).iterator();
+        try {
+            while (iterator.hasNext()) {
+                providers.add(iterator.next());
+            }
+        } catch (ServiceConfigurationError e) {
+            logger.logException(e, "Could not load reprint module providers");
         }
+        if (events != null) events.discoveryEnd(providers.size(), System.nanoTime());
+        return providers;
+    }
+
+    public void registerModule(ReprintModule module) {
+        if (module == null) return;
+        final ReprintModule registered = this.module.get();
+        if (registered != null && module.tag() == registered.tag()) return;
 
         if (module.isHardwarePresent()) {
-            this.module = module;
+            // An app that registers its own module doesn't want the ones it replaced to be used,
+            // so only modules probed by initialize are kept as fallbacks.
+            fallbacks = Collections.emptyList();
+            this.module.set(module);
         }
     }
 
+    /**
+     * Keep every module after the first in the chain as a fallback, skipping duplicate tags.
+     */
+    void setFallbacks(List<ReprintModule> chain) {
+        final List<ReprintModule> result = new ArrayList<>();
+        final Set<Integer> tags = new HashSet<>();
+        tags.add(chain.get(0).tag());
+        for (int i = 1; i < chain.size() && result.size() < MAX_FALLBACKS; i++) {
+            if (tags.add(chain.get(i).tag())) result.add(chain.get(i));
+        }
+        fallbacks = Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Return the first healthy module, starting from the registered one. If none of them are
+     * healthy, return the registered module anyway.
+     */
+    private ReprintModule healthiestModule(ReprintModule registered) {
+        if (health.isHealthy(registered.tag())) return registered;
+        final ReprintModule fallback = nextHealthyModule(registered.tag());
+        return fallback != null ? fallback : registered;
+    }
+
+    /**
+     * Return the first healthy module with fingerprints registered that comes after the module with
+     * the given tag in the chain, or null if there isn't one.
+     */
+    private ReprintModule nextHealthyModule(int moduleTag) {
+        final ReprintModule registered = module.get();
+        // Only moving forward through the chain means a session can't bounce between modules.
+        boolean passed = registered != null && registered.tag() == moduleTag;
+        for (ReprintModule fallback : fallbacks) {
+            if (!passed) {
+                passed = fallback.tag() == moduleTag;
+            } else if (health.isHealthy(fallback.tag()) && fallback.hasFingerprintRegistered()) {
+                return fallback;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Move a session to the next healthy module after its module failed.
+     *
+     * @return true if another module took over the session, in which case the failure shouldn't
+     * be delivered.
+     */
+    boolean failover(AuthenticationSession session, AuthenticationFailureReason reason, int moduleTag) {
+        if (!ModuleHealth.isModuleFailure(reason)) return false;
+        health.recordFailure(moduleTag);
+
+        final SessionSensor sensor = session.sensor;
+        if (sensor == null || sensor.module.tag() != moduleTag) return false;
+        final ReprintModule next = nextHealthyModule(moduleTag);
+        if (next == null) return false;
+
+        sensor.module = next;
+        session.moduleTag = next.tag();
+        if (session.events != null) session.events.sensorStart(session, session.moduleTag, System.nanoTime());
+        return session.restartSensor(sensor);
+    }
+
     public boolean isHardwarePresent() {
-        return module != null && module.isHardwarePresent();
+        return capabilities().hardwarePresent;
     }
 
     public boolean hasFingerprintRegistered() {
-        return module != null && module.hasFingerprintRegistered();
+        return capabilities().fingerprintRegistered;
+    }
+
+    /**
+     * Install a listener for internal timing events, or remove it if null. Sessions keep the
+     * listener that was installed when they started.
+     */
+    public void setEventListener(ReprintEventListener listener) {
+        eventListener = listener;
     }
 
     /**
-     * Start an authentication request.
+     * Discard the cached capabilities so that the next query probes the module again.
+     */
+    public void invalidateCapabilities() {
+        capabilities = null;
+    }
+
+    private Capabilities capabilities() {
+        final ReprintModule module = this.module.get();
+        Capabilities c = capabilities;
+        // A snapshot of a module that has since been replaced is as good as no snapshot.
+        if (c == null || c.module != module) {
+            final ReprintEventListener events = eventListener;
+            if (events != null && module != null) events.probeStart(module, System.nanoTime());
+            c = Capabilities.probe(module);
+            if (events != null && module != null) events.probeEnd(module, c.hardwarePresent, System.nanoTime());
+            // While an async initialization is running, the module is about to change, so a
+            // snapshot taken now could outlive the invalidation that follows the registration.
+            if (pendingRequests == null) capabilities = c;
+        }
+        return c;
+    }
+
+    // The user can only add or remove fingerprints from the system settings, so any time one of
+    // our activities resumes, the enrollment state might have changed.
+    private void registerLifecycleCallbacks(Context context) {
+        if (lifecycleCallbacksRegistered || !(context instanceof Application)) return;
+        lifecycleCallbacksRegistered = true;
+        ((Application) context).registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            public void onActivityResumed(Activity activity) {
+                invalidateCapabilities();
+            }
+
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+            public void onActivityStarted(Activity activity) {}
+
+            public void onActivityPaused(Activity activity) {}
+
+            public void onActivityStopped(Activity activity) {}
+
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+            public void onActivityDestroyed(Activity activity) {}
+        });
+    }
+
+    /**
+     * Start an authentication request, replacing the current one if there is one.
      *
      * @param listener         The listener to be notified.
      * @param restartPredicate The predicate that determines whether to restart or not.
+     * @param options          Optional settings for the request, may be null.
      */
-    public void authenticate(final AuthenticationListener listener, Reprint.RestartPredicate restartPredicate) {
-        if (module == null || !module.isHardwarePresent()) {
-            listener.onFailure(AuthenticationFailureReason.NO_HARDWARE, true,
-                    getString(R.string.fingerprint_error_hw_not_available), 0, 0);
+    public AuthenticationSession authenticate(AuthenticationListener listener,
+                                              Reprint.RestartPredicate restartPredicate,
+                                              AuthenticationOptions options) {
+        return authenticate(listener, restartPredicate, null, options);
+    }
+
+    /**
+     * Start an authentication request that takes a new restart predicate from a policy each time
+     * its sensor is armed.
+     */
+    public AuthenticationSession authenticateWithPolicy(AuthenticationListener listener, RestartPolicy restartPolicy,
+                                                        AuthenticationOptions options) {
+        return authenticate(listener, null, restartPolicy, options);
+    }
+
+    private AuthenticationSession authenticate(final AuthenticationListener listener,
+                                               final Reprint.RestartPredicate restartPredicate,
+                                               final RestartPolicy restartPolicy,
+                                               final AuthenticationOptions options) {
+        final Looper callbackLooper = options == null ? null : options.callbackLooper;
+        final Handler callbackHandler = callbackLooper == null ? null : new Handler(callbackLooper);
+        final ReprintEventListener events = eventListener;
+        final AuthenticationSession session = new AuthenticationSession(listener, events, preparedSignal.getAndSet(null));
+        if (events != null) events.authenticateStart(session, System.nanoTime());
+
+        // Stop the previous request before starting the new one, so that they don't both try to
+        // use the sensor.
+        final AuthenticationSession previous = currentSession.getAndSet(session);
+        if (previous != null) {
+            previous.cancelSignal();
+        }
+
+        if (pendingRequests != null) {
+            synchronized (pendingLock) {
+                if (pendingRequests != null) {
+                    pendingRequests.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            start(session, restartPredicate, restartPolicy, callbackHandler, options);
+                        }
+                    });
+                    return session;
+                }
+            }
+        }
+
+        start(session, restartPredicate, restartPolicy, callbackHandler, options);
+        return session;
+    }
+
+    private void start(AuthenticationSession session, Reprint.RestartPredicate restartPredicate,
+                       RestartPolicy restartPolicy, Handler callbackHandler, AuthenticationOptions options) {
+        // The session might have been cancelled while it was waiting for initialization.
+        if (!session.beginStart()) return;
+
+        // Starting the sensor during a lockout would just be rejected again, so skip the probing
+        // and the module entirely.
+        final Lockout lockout = activeLockout();
+        if (lockout != null) {
+            onCallbackThread(session.listener, callbackHandler).onFailure(AuthenticationFailureReason.LOCKED_OUT, true,
+                    getString(AuthenticationFailureReason.LOCKED_OUT), lockout.moduleTag, lockout.errorCode);
             return;
         }
 
-        if (!module.hasFingerprintRegistered()) {
-            listener.onFailure(AuthenticationFailureReason.NO_FINGERPRINTS_REGISTERED, true,
-                    getString(R.string.fingerprint_not_recognized), 0, 0);
+        // Anything other than the snapshot that was already cached had to be probed just now.
+        final Capabilities cached = this.capabilities;
+        final Capabilities capabilities = capabilities();
+        final boolean probed = capabilities != cached;
+        if (!capabilities.hardwarePresent) {
+            onCallbackThread(session.listener, callbackHandler).onFailure(AuthenticationFailureReason.NO_HARDWARE, true,
+                    getString(AuthenticationFailureReason.NO_HARDWARE), 0, 0);
             return;
         }
 
-        cancellationSignal.set(new CancellationSignal());
-        module.authenticate(cancellationSignal.get(), listener, restartPredicate);
+        if (!capabilities.fingerprintRegistered) {
+            onCallbackThread(session.listener, callbackHandler).onFailure(AuthenticationFailureReason.NO_FINGERPRINTS_REGISTERED, true,
+                    getString(AuthenticationFailureReason.NO_FINGERPRINTS_REGISTERED), 0, 0);
+            return;
+        }
+
+        final ReprintModule module = healthiestModule(capabilities.module);
+        session.moduleTag = module.tag();
+        if (session.events != null) session.events.sensorStart(session, session.moduleTag, System.nanoTime());
+        // A policy's duration limit is measured from here, once the request is no longer queued.
+        final Reprint.RestartPredicate predicate = session.instrument(
+                restartPolicy != null ? restartPolicy.newPredicate() : restartPredicate);
+        final boolean coalesce = options != null && options.coalesceWindowNanos > 0;
+        Executor callbackExecutor = null;
+        if (coalesce || SessionWatchdog.isEnabled(options)) {
+            callbackExecutor = callbackHandler == null ? mainThreadExecutor() : handlerExecutor(callbackHandler);
+        }
+        AuthenticationListener listener = session.listener;
+        if (coalesce) {
+            listener = new CoalescingListener(listener, options.coalesceWindowNanos, timerExecutor(), callbackExecutor);
+            // Repeats that the coalescing listener holds back still show that the sensor is alive.
+            if (SessionWatchdog.isEnabled(options)) listener = session.feedingWatchdog(listener);
+        }
+
+        final SessionSensor sensor = new SessionSensor(session, module, listener, predicate, callbackHandler);
+        metrics.recordSensorStart(module.tag(), System.nanoTime() - session.startNanos, probed);
+        session.sensor = sensor;
+        session.continuous = options != null && options.continuous;
+        session.restartPolicy = restartPolicy;
+
+        if (SessionWatchdog.isEnabled(options)) {
+            final SessionWatchdog watchdog = new SessionWatchdog(session, predicate, sensor, options, timerExecutor(), callbackExecutor);
+            session.watchdog = watchdog;
+            watchdog.start();
+        }
+
+        sensor.run();
+        session.endStart();
+    }
+
+    /**
+     * End a session whose watchdog fired. Called on the session's callback thread.
+     */
+    void expire(AuthenticationSession session) {
+        session.listener.onFailure(AuthenticationFailureReason.TIMEOUT, true,
+                getString(AuthenticationFailureReason.TIMEOUT), session.moduleTag, AuthenticationOptions.WATCHDOG_TIMEOUT);
+        session.stopSensor();
+    }
+
+    static AuthenticationListener onCallbackThread(AuthenticationListener listener, Handler handler) {
+        return handler == null ? listener : new HandlerAuthenticationListener(handler, listener);
     }
 
     public void cancelAuthentication() {
-        final CancellationSignal signal = cancellationSignal.getAndSet(null);
-        if (signal != null) {
-            try {
-                signal.cancel();
-            } catch (NullPointerException e) {
-                // Occasionally the cancel call throws an NPE when trying to unparcelize something.
-            }
+        final AuthenticationSession session = currentSession.getAndSet(null);
+        if (session != null) {
+            session.cancelSignal();
+        }
+    }
+
+    /**
+     * Cancel a specific request, leaving any newer request running.
+     */
+    void cancel(AuthenticationSession session) {
+        currentSession.compareAndSet(session, null);
+        session.cancelSignal();
+    }
+
+    /**
+     * Called when a module reports that its sensor is locked out. A lockout that's already running
+     * isn't extended, since the platform doesn't extend it either.
+     * <p/>
+     * Only the codes that the module declares as lockouts are recorded, since the duration is only
+     * known for those.
+     */
+    void onLockout(int moduleTag, int errorCode) {
+        final ReprintModule module = this.module.get();
+        if (!(module instanceof LockoutReportingModule) || module.tag() != moduleTag
+                || !((LockoutReportingModule) module).isLockoutCode(errorCode)) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final Lockout current = lockout;
+        if (current != null && current.moduleTag == moduleTag && current.remainingNanos(now) > 0) return;
+        lockout = new Lockout(moduleTag, errorCode, now + TimeUnit.MILLISECONDS.toNanos(LOCKOUT_DURATION_MILLIS));
+    }
+
+    public long lockoutRemainingMillis() {
+        final Lockout l = activeLockout();
+        if (l == null) return 0;
+        // Round up, so that a countdown doesn't reach zero while the sensor is still locked.
+        return (l.remainingNanos(System.nanoTime()) + 999999) / 1000000;
+    }
+
+    /**
+     * Return the lockout of the registered module if it hasn't expired, or null.
+     */
+    private Lockout activeLockout() {
+        final Lockout l = lockout;
+        if (l == null || l.remainingNanos(System.nanoTime()) <= 0) return null;
+        final ReprintModule module = this.module.get();
+        return module != null && module.tag() == l.moduleTag ? l : null;
+    }
+
+    /**
+     * Called when a session receives a terminal event.
+     */
+    void onFinished(AuthenticationSession session) {
+        currentSession.compareAndSet(session, null);
+    }
+
+    private String getString(AuthenticationFailureReason reason) {
+        return context == null ? null : MessageCatalog.forReason(context, reason);
+    }
+
+    private static final class Lockout {
+        final int moduleTag;
+        /** The error code the module reported the lockout with, repeated to later requests. */
+        final int errorCode;
+        final long untilNanos;
+
+        Lockout(int moduleTag, int errorCode, long untilNanos) {
+            this.moduleTag = moduleTag;
+            this.errorCode = errorCode;
+            this.untilNanos = untilNanos;
+        }
+
+        long remainingNanos(long now) {
+            return untilNanos - now;
         }
     }
 
-    private String getString(int resid) {
-        return context == null ? null : context.getString(resid);
+    /**
+     * An immutable snapshot of the results of a module's capability queries.
+     */
+    static final class Capabilities {
+        /** The module that was probed. Not considered by equals. */
+        final ReprintModule module;
+        final boolean hardwarePresent;
+        final boolean fingerprintRegistered;
+
+        Capabilities(boolean hardwarePresent, boolean fingerprintRegistered) {
+            this(null, hardwarePresent, fingerprintRegistered);
+        }
+
+        private Capabilities(ReprintModule module, boolean hardwarePresent, boolean fingerprintRegistered) {
+            this.module = module;
+            this.hardwarePresent = hardwarePresent;
+            this.fingerprintRegistered = fingerprintRegistered;
+        }
+
+        Capabilities forModule(ReprintModule module) {
+            return new Capabilities(module, hardwarePresent, fingerprintRegistered);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Capabilities)) return false;
+            final Capabilities that = (Capabilities) o;
+            return hardwarePresent == that.hardwarePresent
+                    && fingerprintRegistered == that.fingerprintRegistered;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (hardwarePresent ? 1 : 0) + (fingerprintRegistered ? 1 : 0);
+        }
+
+        static Capabilities probe(ReprintModule module) {
+            if (module == null || !module.isHardwarePresent()) return new Capabilities(module, false, false);
+            return new Capabilities(module, true, module.hasFingerprintRegistered());
+        }
     }
 }
@@ -0,0 +1,242 @@
+package com.github.ajalt.reprint.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Outcome counts and latency distributions for authentication sessions, grouped by module.
+ * <p/>
+ * Reprint records these for every session automatically. Use {@link Reprint#metrics()} to get the
+ * registry, and {@link #snapshot()} to read it.
+ * <p/>
+ * Recording never takes a lock, and histograms use power-of-two buckets, so they're cheap to
+ * update and small to ship.
+ */
+public final class ReprintMetrics {
+    private static final int SUCCESS = AuthenticationFailureReason.values().length;
+    private static final int CANCELLED = SUCCESS + 1;
+
+    private final ConcurrentMap<Integer, ModuleMetrics> modules = new ConcurrentHashMap<>();
+
+    ReprintMetrics() {
+    }
+
+    /**
+     * Return the current values for every module that has had a session, ordered by module tag.
+     * <p/>
+     * Counters are read one at a time while sessions might still be recording, so the values in a
+     * snapshot aren't guaranteed to be from the exact same instant.
+     */
+    public List<Snapshot> snapshot() {
+        final List<Snapshot> snapshots = new ArrayList<>(modules.size());
+        for (ModuleMetrics metrics : modules.values()) {
+            snapshots.add(metrics.snapshot());
+        }
+        // Insertion sort, since there's rarely more than one or two modules.
+        for (int i = 1; i < snapshots.size(); i++) {
+            for (int j = i; j > 0 && snapshots.get(j - 1).moduleTag > snapshots.get(j).moduleTag; j--) {
+                snapshots.set(j, snapshots.set(j - 1, snapshots.get(j)));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Discard all recorded values.
+     */
+    public void reset() {
+        modules.clear();
+    }
+
+    void recordSuccess(int moduleTag, long elapsedNanos, int restarts) {
+        final ModuleMetrics metrics = module(moduleTag);
+        metrics.outcomes.incrementAndGet(SUCCESS);
+        metrics.timeToSuccess.record(elapsedNanos / 1000);
+        metrics.restarts.record(restarts);
+    }
+
+    void recordFailure(int moduleTag, AuthenticationFailureReason reason, int restarts) {
+        final ModuleMetrics metrics = module(moduleTag);
+        metrics.outcomes.incrementAndGet(reason.ordinal());
+        metrics.restarts.record(restarts);
+    }
+
+    void recordCancel(int moduleTag, int restarts) {
+        final ModuleMetrics metrics = module(moduleTag);
+        metrics.outcomes.incrementAndGet(CANCELLED);
+        metrics.restarts.record(restarts);
+    }
+
+    void recordSensorStart(int moduleTag, long elapsedNanos, boolean probed) {
+        final ModuleMetrics metrics = module(moduleTag);
+        (probed ? metrics.coldStartLatency : metrics.warmStartLatency).record(elapsedNanos / 1000);
+    }
+
+    void recordFirstHelp(int moduleTag, long elapsedNanos) {
+        module(moduleTag).timeToFirstHelp.record(elapsedNanos / 1000);
+    }
+
+    private ModuleMetrics module(int moduleTag) {
+        ModuleMetrics metrics = modules.get(moduleTag);
+        if (metrics == null) {
+            final ModuleMetrics created = new ModuleMetrics(moduleTag);
+            metrics = modules.putIfAbsent(moduleTag, created);
+            if (metrics == null) metrics = created;
+        }
+        return metrics;
+    }
+
+    /**
+     * The values recorded for a single module.
+     */
+    public static final class Snapshot {
+        /** The tag of the module, or 0 for sessions that failed before a module was started. */
+        public final int moduleTag;
+        /** Sessions that ended with a success, counting every success of continuous sessions. */
+        public final long successes;
+        /** Sessions that were cancelled, either directly or by starting another session. */
+        public final long cancellations;
+        /**
+         * Microseconds from the authenticate call to the success, for successful sessions. For
+         * continuous sessions, later successes are measured from the previous success.
+         */
+        public final Histogram timeToSuccessMicros;
+        /** Microseconds from the authenticate call to the first non-fatal failure. */
+        public final Histogram timeToFirstHelpMicros;
+        /** The number of times the sensor was restarted, for each finished session. */
+        public final Histogram restartsPerSession;
+        /**
+         * Microseconds from the authenticate call to starting the sensor, for requests that had to
+         * probe the module's capabilities first.
+         */
+        public final Histogram coldStartLatencyMicros;
+        /**
+         * Microseconds from the authenticate call to starting the sensor, for requests that found
+         * the capabilities already cached by {@link Reprint#prepare()} or an earlier request.
+         */
+        public final Histogram warmStartLatencyMicros;
+        private final long[] outcomes;
+
+        private Snapshot(int moduleTag, long[] outcomes, Histogram timeToSuccessMicros,
+                         Histogram timeToFirstHelpMicros, Histogram restartsPerSession,
+                         Histogram coldStartLatencyMicros, Histogram warmStartLatencyMicros) {
+            this.moduleTag = moduleTag;
+            this.outcomes = outcomes;
+            this.successes = outcomes[SUCCESS];
+            this.cancellations = outcomes[CANCELLED];
+            this.timeToSuccessMicros = timeToSuccessMicros;
+            this.timeToFirstHelpMicros = timeToFirstHelpMicros;
+            this.restartsPerSession = restartsPerSession;
+            this.coldStartLatencyMicros = coldStartLatencyMicros;
+            this.warmStartLatencyMicros = warmStartLatencyMicros;
+        }
+
+        /**
+         * Return the number of sessions that ended with a fatal failure for the given reason.
+         */
+        public long failures(AuthenticationFailureReason reason) {
+            return outcomes[reason.ordinal()];
+        }
+    }
+
+    /**
+     * A distribution of values in power-of-two buckets.
+     * <p/>
+     * Bucket 0 counts values of zero or less, and bucket {@code i} counts values in
+     * [2<sup>i-1</sup>, 2<sup>i</sup>). The last bucket also counts all larger values.
+     */
+    public static final class Histogram {
+        static final int BUCKETS = 32;
+
+        private final long[] counts;
+
+        private Histogram(long[] counts) {
+            this.counts = counts;
+        }
+
+        public int bucketCount() {
+            return counts.length;
+        }
+
+        public long count(int bucket) {
+            return counts[bucket];
+        }
+
+        /** The smallest value counted by a bucket. */
+        public static long lowerBound(int bucket) {
+            return bucket == 0 ? 0 : 1L << (bucket - 1);
+        }
+
+        /** The number of values recorded. */
+        public long total() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Return the lower bound of the bucket that contains the given percentile, or 0 if the
+         * histogram is empty.
+         *
+         * @param percentile A value in the range [0, 100].
+         */
+        public long percentile(double percentile) {
+            final long total = total();
+            if (total == 0) return 0;
+            final long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) return lowerBound(i);
+            }
+            return lowerBound(counts.length - 1);
+        }
+    }
+
+    /** The recording side of a {@link Histogram}. */
+    private static final class Recorder {
+        private final AtomicLongArray buckets = new AtomicLongArray(Histogram.BUCKETS);
+
+        void record(long value) {
+            final int bucket = value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+            buckets.incrementAndGet(Math.min(bucket, Histogram.BUCKETS - 1));
+        }
+
+        Histogram snapshot() {
+            return new Histogram(copy(buckets));
+        }
+    }
+
+    private static final class ModuleMetrics {
+        final int moduleTag;
+        final AtomicLongArray outcomes = new AtomicLongArray(CANCELLED + 1);
+        final Recorder timeToSuccess = new Recorder();
+        final Recorder timeToFirstHelp = new Recorder();
+        final Recorder restarts = new Recorder();
+        final Recorder coldStartLatency = new Recorder();
+        final Recorder warmStartLatency = new Recorder();
+
+        ModuleMetrics(int moduleTag) {
+            this.moduleTag = moduleTag;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(moduleTag, copy(outcomes), timeToSuccess.snapshot(),
+                    timeToFirstHelp.snapshot(), restarts.snapshot(), coldStartLatency.snapshot(),
+                    warmStartLatency.snapshot());
+        }
+    }
+
+    private static long[] copy(AtomicLongArray array) {
+        final long[] values = new long[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.ajalt.reprint.core;
+
+import android.content.Context;
+
+/**
+ * Creates a {@link ReprintModule} during {@link Reprint#initialize(Context)}.
+ * <p/>
+ * Providers are discovered with {@link java.util.ServiceLoader}. To have your module loaded
+ * automatically, implement this interface with a public no-argument constructor, and list the
+ * implementation's class name in a {@code META-INF/services/com.github.ajalt.reprint.core.ReprintModuleProvider}
+ * file in your library's java resources. R8 replaces the lookup with direct constructor calls, so
+ * discovery doesn't cost any reflection in minified builds.
+ * <p/>
+ * Modules from providers other than the ones included with Reprint are registered after the
+ * built-in modules, the same as if you had called {@link Reprint#registerModule(ReprintModule)}
+ * yourself after initializing.
+ */
+public interface ReprintModuleProvider {
+    /**
+     * The {@link ReprintModule#tag()} of the modules created by this provider.
+     */
+    int tag();
+
+    /**
+     * Create a new instance of this provider's module.
+     *
+     * @return The new module, or null if the module can't be used on this device.
+     */
+    ReprintModule create(Context context, Reprint.Logger logger);
+}
@@ -0,0 +1,171 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.engine.RestartBackoff;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Describes when, and how soon, to restart the fingerprint sensor after a failure.
+ * <p/>
+ * A policy is immutable, so a single instance can be shared by every request in an app. Call
+ * {@link #newPredicate()} to get the {@link Reprint.RestartPredicate} for each request. Every
+ * predicate counts its own restarts, and is safe to call from any thread.
+ * <p/>
+ * <pre>{@code
+ * RestartPolicy policy = new RestartPolicy.Builder()
+ *         .maxRestarts(AuthenticationFailureReason.TIMEOUT, 5)
+ *         .maxDuration(1, TimeUnit.MINUTES)
+ *         .exponentialBackoff(100, 5000, TimeUnit.MILLISECONDS)
+ *         .jitter(0.5)
+ *         .build();
+ *
+ * Reprint.authenticate(listener, policy.newPredicate());
+ * }</pre>
+ */
+public final class RestartPolicy {
+    private static final Random RANDOM = new Random();
+
+    /** The maximum number of restarts for each failure reason, indexed by ordinal. */
+    private final int[] maxRestarts;
+    /** The time after which the sensor isn't restarted at all, or 0 for no limit. */
+    private final long maxDurationNanos;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitter;
+
+    private RestartPolicy(Builder builder) {
+        maxRestarts = builder.maxRestarts.clone();
+        maxDurationNanos = builder.maxDurationNanos;
+        initialDelayMillis = builder.initialDelayMillis;
+        maxDelayMillis = builder.maxDelayMillis;
+        multiplier = builder.multiplier;
+        jitter = builder.jitter;
+    }
+
+    /**
+     * Return a predicate that applies this policy to a single request.
+     * <p/>
+     * The {@link Builder#maxDuration duration} limit is measured from this call, so create the
+     * predicate when you start the request.
+     */
+    public Reprint.RestartPredicate newPredicate() {
+        return new Predicate(System.nanoTime());
+    }
+
+    /**
+     * Return the delay before the given restart for a single failure reason.
+     *
+     * @param attempt The number of earlier restarts for the same reason.
+     */
+    long delayMillis(int attempt) {
+        if (initialDelayMillis <= 0) return 0;
+        final double delay = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, attempt));
+        return (long) (delay * (1 - jitter * RANDOM.nextDouble()));
+    }
+
+    /**
+     * Builds an immutable {@link RestartPolicy}.
+     * <p/>
+     * By default, the sensor is restarted immediately after every failure, without limit.
+     */
+    public static final class Builder {
+        private final int[] maxRestarts = new int[AuthenticationFailureReason.values().length];
+        private long maxDurationNanos = 0;
+        private long initialDelayMillis = 0;
+        private long maxDelayMillis = 0;
+        private double multiplier = 1;
+        private double jitter = 0;
+
+        public Builder() {
+            Arrays.fill(maxRestarts, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Restart the sensor at most {@code count} times for failures with the given reason.
+         */
+        public Builder maxRestarts(AuthenticationFailureReason reason, int count) {
+            maxRestarts[reason.ordinal()] = count;
+            return this;
+        }
+
+        /**
+         * Stop restarting the sensor once this much time has passed since the request started.
+         */
+        public Builder maxDuration(long duration, TimeUnit unit) {
+            maxDurationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Wait the same amount of time before every restart.
+         */
+        public Builder fixedBackoff(long delay, TimeUnit unit) {
+            initialDelayMillis = maxDelayMillis = unit.toMillis(delay);
+            multiplier = 1;
+            return this;
+        }
+
+        /**
+         * Wait before each restart, doubling the wait for each restart for the same reason.
+         *
+         * @param initialDelay The delay before the first restart.
+         * @param maxDelay     The longest that a single delay can grow to.
+         */
+        public Builder exponentialBackoff(long initialDelay, long maxDelay, TimeUnit unit) {
+            initialDelayMillis = unit.toMillis(initialDelay);
+            maxDelayMillis = unit.toMillis(maxDelay);
+            multiplier = 2;
+            return this;
+        }
+
+        /**
+         * Shorten each delay by a random fraction of up to {@code fraction}, so that many devices
+         * don't restart in lockstep.
+         *
+         * @param fraction A value in the range [0, 1].
+         */
+        public Builder jitter(double fraction) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException("jitter must be between 0 and 1: " + fraction);
+            }
+            jitter = fraction;
+            return this;
+        }
+
+        public RestartPolicy build() {
+            return new RestartPolicy(this);
+        }
+    }
+
+    private final class Predicate implements Reprint.RestartPredicate, RestartBackoff {
+        private final long startNanos;
+        private final AtomicIntegerArray restarts = new AtomicIntegerArray(maxRestarts.length);
+
+        Predicate(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            if (maxDurationNanos > 0 && System.nanoTime() - startNanos >= maxDurationNanos) return false;
+            final int i = reason.ordinal();
+            int count;
+            do {
+                count = restarts.get(i);
+                if (count >= maxRestarts[i]) return false;
+            } while (!restarts.compareAndSet(i, count, count + 1));
+            return true;
+        }
+
+        @Override
+        public long restartDelayMillis(AuthenticationFailureReason reason, int restartCount) {
+            // The backoff grows with the restarts for this reason, not all restarts, so that a
+            // run of partial reads doesn't slow down the restart after a timeout.
+            return delayMillis(restarts.get(reason.ordinal()) - 1);
+        }
+    }
+}
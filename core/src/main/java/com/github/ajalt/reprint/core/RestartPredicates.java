@@ -6,17 +6,16 @@ public class RestartPredicates {
     /**
      * A predicate that will retry all non-fatal failures indefinitely, and timeouts a given number
      * of times.
+     * <p/>
+     * See {@link RestartPolicy} for limits on the total duration, and delays between restarts.
      *
      * @param timeoutRestartCount The maximum number of times to restart after a timeout.
      */
     public static Reprint.RestartPredicate restartTimeouts(final int timeoutRestartCount) {
-        return new Reprint.RestartPredicate() {
-            private int timeoutRestarts = 0;
-            @Override
-            public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
-                return reason != TIMEOUT || timeoutRestarts++ < timeoutRestartCount;
-            }
-        };
+        return new RestartPolicy.Builder()
+                .maxRestarts(TIMEOUT, timeoutRestartCount)
+                .build()
+                .newPredicate();
     }
 
     /** A predicate that will retry all non-fatal failures indefinitely, and timeouts 5 times. */
@@ -0,0 +1,40 @@
+package com.github.ajalt.reprint.core;
+
+import android.os.Handler;
+
+/**
+ * Starts the sensor of the module that is serving a session, with the session's current
+ * cancellation signal.
+ * <p/>
+ * The watchdog runs this again to recycle the sensor, and failover points it at another module
+ * before running it again.
+ */
+final class SessionSensor implements Runnable {
+    private final AuthenticationSession session;
+    private final AuthenticationListener listener;
+    private final Reprint.RestartPredicate restartPredicate;
+    private final Handler callbackHandler;
+    volatile ReprintModule module;
+
+    SessionSensor(AuthenticationSession session, ReprintModule module, AuthenticationListener listener,
+                  Reprint.RestartPredicate restartPredicate, Handler callbackHandler) {
+        this.session = session;
+        this.module = module;
+        // Events that a module delivers on another thread are posted to the handler. Those that
+        // arrive on its thread, like the ones a HandlerReprintModule gets from its api, are
+        // forwarded directly.
+        this.listener = ReprintInternal.onCallbackThread(listener, callbackHandler);
+        this.restartPredicate = restartPredicate;
+        this.callbackHandler = callbackHandler;
+    }
+
+    @Override
+    public void run() {
+        final ReprintModule module = this.module;
+        if (callbackHandler != null && module instanceof HandlerReprintModule) {
+            ((HandlerReprintModule) module).authenticate(session.cancellationSignal, listener, restartPredicate, callbackHandler);
+        } else {
+            module.authenticate(session.cancellationSignal, listener, restartPredicate);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.ajalt.reprint.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces the {@link AuthenticationOptions#deadline deadline} and {@link
+ * AuthenticationOptions#idleTimeout idle timeout} of a single session.
+ * <p/>
+ * Only one check is scheduled at a time, for whichever limit comes first. Events from the module
+ * just record a timestamp, and the check reschedules itself if the session turns out not to be
+ * idle yet, so a chatty sensor doesn't cost a scheduler call per event.
+ * <p/>
+ * The checks run on the session's callback thread, so that the restart predicate, the listener
+ * and the module are only ever called from the thread they'd be called from anyway.
+ */
+final class SessionWatchdog implements Runnable {
+    private final AuthenticationSession session;
+    private final Reprint.RestartPredicate restartPredicate;
+    /** Starts the module's sensor with the session's current cancellation signal. */
+    private final Runnable sensor;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    /** The {@link System#nanoTime()} at which the session expires, or Long.MAX_VALUE for never. */
+    private final long deadlineNanos;
+    /** The maximum time between events, or 0 to never recycle the sensor. */
+    private final long idleTimeoutNanos;
+    private volatile long lastEventNanos;
+    private volatile ScheduledFuture<?> future;
+    private int recycles = 0;
+
+    SessionWatchdog(AuthenticationSession session, Reprint.RestartPredicate restartPredicate,
+                    Runnable sensor, AuthenticationOptions options, ScheduledExecutorService scheduler,
+                    Executor callbackExecutor) {
+        this.session = session;
+        this.restartPredicate = restartPredicate;
+        this.sensor = sensor;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.deadlineNanos = options.deadlineNanos > 0 ? session.startNanos + options.deadlineNanos : Long.MAX_VALUE;
+        this.idleTimeoutNanos = options.idleTimeoutNanos;
+        this.lastEventNanos = System.nanoTime();
+    }
+
+    static boolean isEnabled(AuthenticationOptions options) {
+        return options != null && (options.deadlineNanos > 0 || options.idleTimeoutNanos > 0);
+    }
+
+    void start() {
+        schedule(System.nanoTime());
+    }
+
+    /** Called for each event the module sends. */
+    void onEvent() {
+        lastEventNanos = System.nanoTime();
+    }
+
+    /** Called once the session has ended. */
+    void stop() {
+        final ScheduledFuture<?> f = future;
+        if (f != null) f.cancel(false);
+    }
+
+    private void schedule(long now) {
+        long due = deadlineNanos;
+        if (idleTimeoutNanos > 0) due = Math.min(due, lastEventNanos + idleTimeoutNanos);
+        if (due == Long.MAX_VALUE) return;
+        future = scheduler.schedule(this, Math.max(0, due - now), TimeUnit.NANOSECONDS);
+    }
+
+    /** Hop from the scheduler to the callback thread. */
+    @Override
+    public void run() {
+        if (session.isActive()) callbackExecutor.execute(check);
+    }
+
+    private final Runnable check = new Runnable() {
+        @Override
+        public void run() {
+            if (!session.isActive()) return;
+            final long now = System.nanoTime();
+            if (deadlineNanos != Long.MAX_VALUE && now - deadlineNanos >= 0) {
+                ReprintInternal.INSTANCE.expire(session);
+                return;
+            }
+            if (idleTimeoutNanos > 0 && now - lastEventNanos >= idleTimeoutNanos) {
+                if (!restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, recycles)) {
+                    ReprintInternal.INSTANCE.expire(session);
+                    return;
+                }
+                recycles++;
+                lastEventNanos = now;
+                session.restartSensor(sensor);
+            }
+            schedule(now);
+        }
+    };
+}
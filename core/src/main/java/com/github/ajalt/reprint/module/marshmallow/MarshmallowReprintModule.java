@@ -4,12 +4,17 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.hardware.fingerprint.FingerprintManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 
-import com.github.ajalt.library.R;
 import com.github.ajalt.reprint.core.AuthenticationFailureReason;
 import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.ErrorCodeTable;
+import com.github.ajalt.reprint.core.HandlerReprintModule;
+import com.github.ajalt.reprint.core.LockoutReportingModule;
+import com.github.ajalt.reprint.core.MessageCatalog;
 import com.github.ajalt.reprint.core.Reprint;
-import com.github.ajalt.reprint.core.ReprintModule;
+import com.github.ajalt.reprint.engine.AuthenticationRequest;
 
 import androidx.annotation.RequiresApi;
 import androidx.core.os.CancellationSignal;
@@ -25,7 +30,7 @@ import androidx.core.os.CancellationSignal;
  */
 @TargetApi(Build.VERSION_CODES.M)
 @RequiresApi(Build.VERSION_CODES.M)
-public class MarshmallowReprintModule implements ReprintModule {
+public class MarshmallowReprintModule implements HandlerReprintModule, LockoutReportingModule {
     public static final int TAG = 1;
 
     // The following FINGERPRINT constants are copied from FingerprintManager, since that class
@@ -113,8 +118,53 @@ public class MarshmallowReprintModule implements ReprintModule {
      */
     public static final int FINGERPRINT_AUTHENTICATION_FAILED = 1001;
 
+    /**
+     * How the codes passed to {@code onAuthenticationError} are reported.
+     * <p/>
+     * Vendor-specific codes can be added to this table. Codes that aren't in the table are reported
+     * as fatal {@link AuthenticationFailureReason#UNKNOWN} failures. The system stops the sensor
+     * after any of these codes, so entries must be fatal or ignored.
+     */
+    public static final ErrorCodeTable ERROR_CODES = new ErrorCodeTable(
+            new ErrorCodeTable.Entry(AuthenticationFailureReason.UNKNOWN, true, false, ErrorCodeTable.NO_MESSAGE), true)
+            .put(FINGERPRINT_ERROR_HW_UNAVAILABLE, fatal(AuthenticationFailureReason.HARDWARE_UNAVAILABLE, false))
+            .put(FINGERPRINT_ERROR_UNABLE_TO_PROCESS, fatal(AuthenticationFailureReason.SENSOR_FAILED, false))
+            .put(FINGERPRINT_ERROR_TIMEOUT, fatal(AuthenticationFailureReason.TIMEOUT, true))
+            .put(FINGERPRINT_ERROR_NO_SPACE, fatal(AuthenticationFailureReason.SENSOR_FAILED, false))
+            // Don't send a cancelled message.
+            .put(FINGERPRINT_ERROR_CANCELED, ErrorCodeTable.Entry.IGNORED)
+            .put(FINGERPRINT_ERROR_LOCKOUT, fatal(AuthenticationFailureReason.LOCKED_OUT, false));
+
+    /**
+     * How the codes passed to {@code onAuthenticationHelp} are reported, along with
+     * {@link #FINGERPRINT_AUTHENTICATION_FAILED} for unrecognized fingerprints.
+     * <p/>
+     * Vendor-specific codes can be added to this table. Codes that aren't in the table are reported
+     * as non-fatal {@link AuthenticationFailureReason#SENSOR_FAILED} failures.
+     */
+    public static final ErrorCodeTable HELP_CODES = new ErrorCodeTable(
+            new ErrorCodeTable.Entry(AuthenticationFailureReason.SENSOR_FAILED, false, true, ErrorCodeTable.NO_MESSAGE))
+            .put(FINGERPRINT_AUTHENTICATION_FAILED, new ErrorCodeTable.Entry(
+                    AuthenticationFailureReason.AUTHENTICATION_FAILED, false, false, MessageCatalog.NOT_RECOGNIZED));
+
+    private static ErrorCodeTable.Entry fatal(AuthenticationFailureReason reason, boolean restartable) {
+        // The system provides its own localized error strings
+        return new ErrorCodeTable.Entry(reason, true, restartable, ErrorCodeTable.NO_MESSAGE);
+    }
+
     private final Context context;
     private final Reprint.Logger logger;
+    private volatile FingerprintManager fingerprintManager;
+    private volatile boolean fingerprintManagerResolved;
+    private volatile boolean hardwareDetectionFailed;
+    /** Runs delayed restarts for requests without a handler. Created when it's first needed. */
+    private volatile Handler mainHandler;
+    private final AuthenticationRequest.Messages messages = new AuthenticationRequest.Messages() {
+        @Override
+        public CharSequence get(int message) {
+            return MessageCatalog.get(context, message);
+        }
+    };
 
     public MarshmallowReprintModule(Context context, Reprint.Logger logger) {
         this.context = context.getApplicationContext();
@@ -124,15 +174,33 @@ public class MarshmallowReprintModule implements ReprintModule {
     // We used to use the appcompat library to load the fingerprint manager, but v25.1.0 was broken
     // on many phones. Instead, we handle the manager ourselves. FingerprintManagerCompat just
     // forwards calls anyway, so it doesn't add any value for us.
+    //
+    // The system service doesn't change for the life of the process, so we only look it up once,
+    // and remember failed lookups as well.
     private FingerprintManager fingerprintManager() {
+        if (fingerprintManagerResolved) return fingerprintManager;
+
+        FingerprintManager manager = null;
         try {
-            return context.getSystemService(FingerprintManager.class);
+            manager = context.getSystemService(FingerprintManager.class);
         } catch (Exception e) {
             logger.logException(e, "Could not get fingerprint system service on API that should support it.");
         } catch (NoClassDefFoundError e) {
             logger.log("FingerprintManager not available on this device");
         }
-        return null;
+        fingerprintManager = manager;
+        fingerprintManagerResolved = true;
+        return manager;
+    }
+
+    private Handler mainHandler() {
+        Handler h = mainHandler;
+        if (h == null) {
+            // Racing threads may both create one, but either works.
+            h = new Handler(Looper.getMainLooper());
+            mainHandler = h;
+        }
+        return h;
     }
 
     @Override
@@ -140,8 +208,14 @@ public class MarshmallowReprintModule implements ReprintModule {
         return TAG;
     }
 
+    @Override
+    public boolean isLockoutCode(int errorCode) {
+        return errorCode == FINGERPRINT_ERROR_LOCKOUT;
+    }
+
     @Override
     public boolean isHardwarePresent() {
+        if (hardwareDetectionFailed) return false;
         final FingerprintManager fingerprintManager = fingerprintManager();
         if (fingerprintManager == null) return false;
         // Normally, a security exception is only thrown if you don't have the USE_FINGERPRINT
@@ -152,9 +226,13 @@ public class MarshmallowReprintModule implements ReprintModule {
         // and the HTC One M8.
         //
         // On Robolectric, FingerprintManager.isHardwareDetected raises an NPE.
+        //
+        // In both cases the call will fail the same way every time, so we remember the failure
+        // rather than paying for the exception on every check.
         try {
             return fingerprintManager.isHardwareDetected();
         } catch (SecurityException | NullPointerException e) {
+            hardwareDetectionFailed = true;
             logger.logException(e, "MarshmallowReprintModule: isHardwareDetected failed unexpectedly");
             return false;
         }
@@ -178,104 +256,97 @@ public class MarshmallowReprintModule implements ReprintModule {
     public void authenticate(final CancellationSignal cancellationSignal,
                              final AuthenticationListener listener,
                              final Reprint.RestartPredicate restartPredicate) {
-        authenticate(cancellationSignal, listener, restartPredicate, 0);
+        authenticate(cancellationSignal, listener, restartPredicate, null);
     }
 
-    void authenticate(final CancellationSignal cancellationSignal,
-                              final AuthenticationListener listener,
-                              final Reprint.RestartPredicate restartPredicate,
-                              final int restartCount) throws SecurityException {
+    /**
+     * @param handler The handler that the system will deliver sensor events on, or null to use
+     *                the main thread.
+     */
+    @Override
+    public void authenticate(final CancellationSignal cancellationSignal,
+                             final AuthenticationListener listener,
+                             final Reprint.RestartPredicate restartPredicate,
+                             final Handler handler) throws SecurityException {
         final FingerprintManager fingerprintManager = fingerprintManager();
 
         if (fingerprintManager == null) {
             listener.onFailure(AuthenticationFailureReason.UNKNOWN, true,
-                    context.getString(R.string.fingerprint_error_hw_not_available), TAG, FINGERPRINT_ERROR_CANCELED);
+                    MessageCatalog.get(context, MessageCatalog.ERROR_HW_NOT_AVAILABLE), TAG, FINGERPRINT_ERROR_CANCELED);
             return;
         }
 
-        final FingerprintManager.AuthenticationCallback callback =
-                new AuthCallback(restartCount, restartPredicate, cancellationSignal, listener);
-
-        // Why getCancellationSignalObject returns an Object is unexplained
-        final android.os.CancellationSignal signalObject = cancellationSignal == null ? null :
-                (android.os.CancellationSignal) cancellationSignal.getCancellationSignalObject();
-
-        // Occasionally, an NPE will bubble up out of FingerprintManager.authenticate
-        try {
-            fingerprintManager.authenticate(null, signalObject, 0, callback, null);
-        } catch (NullPointerException e) {
-            logger.logException(e, "MarshmallowReprintModule: authenticate failed unexpectedly");
-            listener.onFailure(AuthenticationFailureReason.UNKNOWN, true,
-                    context.getString(R.string.fingerprint_error_unable_to_process), TAG, FINGERPRINT_ERROR_CANCELED);
-        }
+        final AuthCallback callback = new AuthCallback(fingerprintManager, restartPredicate, cancellationSignal, listener, handler);
+        callback.request.start(callback);
     }
 
-    class AuthCallback extends FingerprintManager.AuthenticationCallback {
-        private final Reprint.RestartPredicate restartPredicate;
+    /**
+     * Handles all of the events for a single authentication request. The same instance is passed to
+     * the system for every restart, so restarts don't allocate.
+     */
+    class AuthCallback extends FingerprintManager.AuthenticationCallback implements AuthenticationRequest.Sensor {
+        private final FingerprintManager fingerprintManager;
         private final CancellationSignal cancellationSignal;
-        private AuthenticationListener listener;
-        private int restartCount;
-
-        private AuthCallback(int restartCount, Reprint.RestartPredicate restartPredicate,
-                            CancellationSignal cancellationSignal, AuthenticationListener listener) {
-            this.restartCount = restartCount;
-            this.restartPredicate = restartPredicate;
+        private final android.os.CancellationSignal signalObject;
+        private final Handler handler;
+        private final AuthenticationRequest request;
+
+        private AuthCallback(FingerprintManager fingerprintManager, Reprint.RestartPredicate restartPredicate,
+                             CancellationSignal cancellationSignal, AuthenticationListener listener,
+                             Handler handler) {
+            this.fingerprintManager = fingerprintManager;
             this.cancellationSignal = cancellationSignal;
-            this.listener = listener;
+            this.handler = handler;
+            this.request = new AuthenticationRequest(TAG, messages, restartPredicate, listener, false);
+            // Why getCancellationSignalObject returns an Object is unexplained
+            this.signalObject = cancellationSignal == null ? null :
+                    (android.os.CancellationSignal) cancellationSignal.getCancellationSignalObject();
         }
 
+        /** Start the sensor, or restart it after a timeout or a success. */
         @Override
-        public void onAuthenticationError(int errMsgId, CharSequence errString) {
-            if (listener == null) return;
-            AuthenticationFailureReason failureReason = AuthenticationFailureReason.UNKNOWN;
-            switch (errMsgId) {
-                case FINGERPRINT_ERROR_HW_UNAVAILABLE:
-                    failureReason = AuthenticationFailureReason.HARDWARE_UNAVAILABLE;
-                    break;
-                case FINGERPRINT_ERROR_UNABLE_TO_PROCESS:
-                case FINGERPRINT_ERROR_NO_SPACE:
-                    failureReason = AuthenticationFailureReason.SENSOR_FAILED;
-                    break;
-                case FINGERPRINT_ERROR_TIMEOUT:
-                    failureReason = AuthenticationFailureReason.TIMEOUT;
-                    break;
-                case FINGERPRINT_ERROR_LOCKOUT:
-                    failureReason = AuthenticationFailureReason.LOCKED_OUT;
-                    break;
-                case FINGERPRINT_ERROR_CANCELED:
-                    // Don't send a cancelled message.
-                    return;
+        public void start() {
+            // A delayed restart can run after the request was cancelled.
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) return;
+            // Occasionally, an NPE will bubble up out of FingerprintManager.authenticate
+            try {
+                fingerprintManager.authenticate(null, signalObject, 0, this, handler);
+            } catch (NullPointerException e) {
+                logger.logException(e, "MarshmallowReprintModule: authenticate failed unexpectedly");
+                request.fail(AuthenticationFailureReason.UNKNOWN,
+                        MessageCatalog.get(context, MessageCatalog.ERROR_UNABLE_TO_PROCESS), FINGERPRINT_ERROR_CANCELED);
             }
+        }
 
-            if (errMsgId == FINGERPRINT_ERROR_TIMEOUT && restartPredicate.invoke(failureReason, restartCount)) {
-                authenticate(cancellationSignal, listener, restartPredicate, restartCount);
-            } else {
-                listener.onFailure(failureReason, true, errString, TAG, errMsgId);
-                listener = null;
-            }
+        @Override
+        public void stop() {
+            if (cancellationSignal != null) cancellationSignal.cancel();
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            // Without a handler, the system delivers events on the main thread.
+            (handler != null ? handler : mainHandler()).postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void onAuthenticationError(int errMsgId, CharSequence errString) {
+            request.onFailure(errMsgId, ERROR_CODES.get(errMsgId), errString);
         }
 
         @Override
         public void onAuthenticationHelp(int helpMsgId, CharSequence helpString) {
-            if (listener == null) return;
-            if (!restartPredicate.invoke(AuthenticationFailureReason.SENSOR_FAILED, restartCount++)) {
-                cancellationSignal.cancel();
-            }
-            listener.onFailure(AuthenticationFailureReason.SENSOR_FAILED, false, helpString, TAG, helpMsgId);
+            request.onFailure(helpMsgId, HELP_CODES.get(helpMsgId), helpString);
         }
 
         @Override
         public void onAuthenticationSucceeded(FingerprintManager.AuthenticationResult result) {
-            if (listener == null) return;
-            listener.onSuccess(TAG);
-            listener = null;
+            request.onSuccess();
         }
 
         @Override
         public void onAuthenticationFailed() {
-            if (listener == null) return;
-            listener.onFailure(AuthenticationFailureReason.AUTHENTICATION_FAILED, false,
-                    context.getString(R.string.fingerprint_not_recognized), TAG, FINGERPRINT_AUTHENTICATION_FAILED);
+            request.onFailure(FINGERPRINT_AUTHENTICATION_FAILED, HELP_CODES.get(FINGERPRINT_AUTHENTICATION_FAILED), null);
         }
     }
 }
@@ -7,7 +7,7 @@ public interface AuthenticationListener {
     /**
      * Called after a fingerprint is successfully authenticated.
      *
-     * @param moduleTag The {@link ReprintModule#tag()} of the module that was used for authentication.
+     * @param moduleTag The {@code ReprintModule#tag()} of the module that was used for authentication.
      */
     void onSuccess(int moduleTag);
 
@@ -22,7 +22,7 @@ public interface AuthenticationListener {
      *                      displayed in the ui. This string is never null, and will be localized to the
      *                      current locale. You should show this text to the user, or some other message of
      *                      your own based on the failureReason.
-     * @param moduleTag     The {@link ReprintModule#tag()} of the module that is currently active. This is
+     * @param moduleTag     The {@code ReprintModule#tag()} of the module that is currently active. This is
      *                      useful to know the meaning of the error code.
      * @param errorCode     The specific error code returned by the module's underlying sdk. Check the
      *                      constants defined in the module for possible values and their meanings.
@@ -0,0 +1,102 @@
+package com.github.ajalt.reprint.core;
+
+/**
+ * A data class exception that holds the results of an authentication request failure.
+ */
+public class AuthenticationResult {
+    public enum Status {SUCCESS, NONFATAL_FAILURE, FATAL_FAILURE}
+
+    // A small direct-mapped cache of recent results. Sensors tend to report the same few results
+    // over and over, so this avoids allocating a new object for most events. Results are
+    // immutable, so a racy read or write of a slot can at worst cause a miss.
+    private static final int CACHE_SIZE = 64;
+    private static final AuthenticationResult[] CACHE = new AuthenticationResult[CACHE_SIZE];
+
+    /**
+     * The result of the authenticate call.
+     * <p>
+     * If the status is NONFATAL_FAILURE, the fingerprint sensor is still running, and more
+     * events will be emitted. Other statuses are terminal events, and the fingerprint sensor will
+     * be stopped by the time they are emitted.
+     */
+    public final Status status;
+    /**
+     * The general reason for the failure.
+     * <p>
+     * Will be null if the authentication succeeded, and non-null otherwise.
+     */
+    public final AuthenticationFailureReason failureReason;
+    /**
+     * An informative string given by the underlying fingerprint sdk that can be displayed in the ui.
+     * <p>
+     * Will be null if the authentication succeeded, and non-null otherwise.
+     * <p>
+     * The will be localized to the current locale.
+     */
+    public final CharSequence errorMessage;
+    /**
+     * The {@code ReprintModule#tag()} of the module that is currently active.
+     * <p>
+     * This is useful to know the meaning of the error code.
+     */
+    public final int fromModule;
+    /**
+     * The specific error code returned by the module's underlying sdk.
+     * <p>
+     * Check the constants defined in the module for possible values and their meanings.
+     */
+    public final int errorCode;
+
+    public AuthenticationResult(Status status, AuthenticationFailureReason failureReason,
+                                CharSequence errorMessage, int fromModule, int errorCode) {
+        this.status = status;
+        this.failureReason = failureReason;
+        this.errorMessage = errorMessage;
+        this.fromModule = fromModule;
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Return a result with the given values.
+     * <p/>
+     * Unlike the constructor, this will return a shared instance if an identical result was
+     * requested recently. Two results are identical if all of their fields are equal, and their
+     * error messages have the same contents.
+     */
+    public static AuthenticationResult obtain(Status status, AuthenticationFailureReason failureReason,
+                                              CharSequence errorMessage, int fromModule, int errorCode) {
+        final int index = index(status, failureReason, fromModule, errorCode);
+        final AuthenticationResult cached = CACHE[index];
+        if (cached != null
+                && cached.status == status
+                && cached.failureReason == failureReason
+                && cached.fromModule == fromModule
+                && cached.errorCode == errorCode
+                && contentEquals(cached.errorMessage, errorMessage)) {
+            return cached;
+        }
+
+        final AuthenticationResult result = new AuthenticationResult(status, failureReason, errorMessage, fromModule, errorCode);
+        CACHE[index] = result;
+        return result;
+    }
+
+    private static int index(Status status, AuthenticationFailureReason failureReason, int fromModule, int errorCode) {
+        int h = status.ordinal();
+        h = 31 * h + (failureReason == null ? -1 : failureReason.ordinal());
+        h = 31 * h + fromModule;
+        h = 31 * h + errorCode;
+        h ^= h >>> 16;
+        return h & (CACHE_SIZE - 1);
+    }
+
+    private static boolean contentEquals(CharSequence a, CharSequence b) {
+        if (a == b) return true;
+        if (a == null || b == null || a.length() != b.length()) return false;
+        if (a instanceof String && b instanceof String) return a.equals(b);
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+}
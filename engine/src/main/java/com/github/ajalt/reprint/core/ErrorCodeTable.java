@@ -0,0 +1,139 @@
+package com.github.ajalt.reprint.core;
+
+import java.util.Arrays;
+
+/**
+ * Maps a module's error codes to the way Reprint reports them.
+ * <p/>
+ * Each module declares a table for the codes that its fingerprint api reports. Apps can add
+ * entries for vendor-specific codes with {@link #put(int, Entry)} without modifying the module.
+ * <p/>
+ * Small codes are stored in an array indexed by code, and larger or negative codes are kept in a
+ * sorted array, so lookups never allocate. This class is thread safe.
+ */
+public final class ErrorCodeTable {
+    /** Used as an entry's message when the module should report the message from its api. */
+    public static final int NO_MESSAGE = -1;
+
+    private static final int DENSE_SIZE = 64;
+
+    /**
+     * How a single error code is reported.
+     */
+    public static final class Entry {
+        /** An entry for codes that should not be reported at all, such as cancellations. */
+        public static final Entry IGNORED = new Entry(null, false, false, NO_MESSAGE);
+
+        /** The reason reported for this code, or null if the code is ignored. */
+        public final AuthenticationFailureReason reason;
+
+        /** If true, the request is over after this code is reported. */
+        public final boolean fatal;
+
+        /** If true, the module consults the restart predicate before reporting this code. */
+        public final boolean restartable;
+
+        /** A message constant from {@code MessageCatalog}, or {@link #NO_MESSAGE}. */
+        public final int message;
+
+        public Entry(AuthenticationFailureReason reason, boolean fatal, boolean restartable, int message) {
+            this.reason = reason;
+            this.fatal = fatal;
+            this.restartable = restartable;
+            this.message = message;
+        }
+
+        public boolean isIgnored() {
+            return reason == null;
+        }
+    }
+
+    private final Entry fallback;
+    private final boolean terminal;
+    private volatile Entry[] dense = new Entry[DENSE_SIZE];
+    private volatile Sparse sparse = new Sparse(new int[0], new Entry[0]);
+
+    /**
+     * @param fallback The entry returned for codes that haven't been added to the table.
+     */
+    public ErrorCodeTable(Entry fallback) {
+        this(fallback, false);
+    }
+
+    /**
+     * @param fallback The entry returned for codes that haven't been added to the table.
+     * @param terminal True if the api's request is always over once it reports one of the codes in
+     *                 this table. The table then only accepts fatal or ignored entries, since a
+     *                 non-fatal failure would leave the listener waiting for a sensor that has
+     *                 stopped.
+     */
+    public ErrorCodeTable(Entry fallback, boolean terminal) {
+        this.fallback = fallback;
+        this.terminal = terminal;
+    }
+
+    /**
+     * Add or replace the entry for a code.
+     *
+     * @return this table, so that calls can be chained.
+     * @throws IllegalArgumentException if this table is terminal and the entry is neither fatal nor
+     *                                  ignored.
+     */
+    public synchronized ErrorCodeTable put(int code, Entry entry) {
+        if (entry == null) throw new NullPointerException("entry");
+        if (terminal && !entry.fatal && !entry.isIgnored()) {
+            throw new IllegalArgumentException("Entries for code " + code + " must be fatal, since the code ends the request");
+        }
+        // Readers never lock, so the arrays are copied rather than modified in place.
+        if (code >= 0 && code < DENSE_SIZE) {
+            final Entry[] copy = dense.clone();
+            copy[code] = entry;
+            dense = copy;
+            return this;
+        }
+
+        final Sparse s = sparse;
+        final int i = Arrays.binarySearch(s.codes, code);
+        if (i >= 0) {
+            final Entry[] entries = s.entries.clone();
+            entries[i] = entry;
+            sparse = new Sparse(s.codes, entries);
+        } else {
+            final int insert = -(i + 1);
+            final int[] codes = new int[s.codes.length + 1];
+            final Entry[] entries = new Entry[s.entries.length + 1];
+            System.arraycopy(s.codes, 0, codes, 0, insert);
+            System.arraycopy(s.entries, 0, entries, 0, insert);
+            codes[insert] = code;
+            entries[insert] = entry;
+            System.arraycopy(s.codes, insert, codes, insert + 1, s.codes.length - insert);
+            System.arraycopy(s.entries, insert, entries, insert + 1, s.entries.length - insert);
+            sparse = new Sparse(codes, entries);
+        }
+        return this;
+    }
+
+    /**
+     * Return the entry for a code, or the fallback entry if the code isn't in the table.
+     */
+    public Entry get(int code) {
+        if (code >= 0 && code < DENSE_SIZE) {
+            final Entry entry = dense[code];
+            return entry == null ? fallback : entry;
+        }
+
+        final Sparse s = sparse;
+        final int i = Arrays.binarySearch(s.codes, code);
+        return i < 0 ? fallback : s.entries[i];
+    }
+
+    private static final class Sparse {
+        final int[] codes;
+        final Entry[] entries;
+
+        Sparse(int[] codes, Entry[] entries) {
+            this.codes = codes;
+            this.entries = entries;
+        }
+    }
+}
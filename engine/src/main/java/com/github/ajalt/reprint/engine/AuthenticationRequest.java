@@ -0,0 +1,183 @@
+package com.github.ajalt.reprint.engine;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.ErrorCodeTable;
+
+/**
+ * The state of a single authentication request, independent of any fingerprint api.
+ * <p/>
+ * A module creates one of these for each request and forwards the events from its api to it,
+ * along with the {@link ErrorCodeTable} entry for each code. The request decides whether to restart
+ * the sensor, and makes sure that nothing is delivered to the listener after a success or fatal
+ * failure.
+ * <p/>
+ * Events must be delivered on a single thread.
+ */
+public final class AuthenticationRequest {
+    /**
+     * Controls the module's fingerprint sensor.
+     */
+    public interface Sensor {
+        /**
+         * Start the sensor, or restart it after a failure.
+         */
+        void start();
+
+        /**
+         * Stop the sensor because the request is over.
+         */
+        void stop();
+
+        /**
+         * Run a task after a delay, on the thread that the sensor's events are delivered on.
+         * <p/>
+         * This is used to restart the sensor when the restart condition asks for a {@link
+         * RestartBackoff backoff}.
+         */
+        void postDelayed(Runnable task, long delayMillis);
+    }
+
+    /**
+     * Resolves the message ids in an {@link ErrorCodeTable} into text.
+     */
+    public interface Messages {
+        CharSequence get(int message);
+    }
+
+    private final int moduleTag;
+    private final Messages messages;
+    private final RestartCondition restartCondition;
+    private final GuardedListener listener;
+    private final boolean sensorStopsAfterEachRead;
+    private Sensor sensor;
+    private int restartCount = 0;
+    private final Runnable delayedStart = new Runnable() {
+        @Override
+        public void run() {
+            if (!listener.isClosed()) sensor.start();
+        }
+    };
+
+    /**
+     * @param moduleTag                The tag of the module that owns this request.
+     * @param messages                 Resolves the messages in the code table.
+     * @param restartCondition         Decides if the request continues after a failure.
+     * @param listener                 Receives the events for this request.
+     * @param sensorStopsAfterEachRead If true, the sensor has to be started again after every
+     *                                 non-fatal failure. Otherwise it's only restarted after a
+     *                                 restartable fatal failure like a timeout.
+     */
+    public AuthenticationRequest(int moduleTag, Messages messages,
+                                 RestartCondition restartCondition, AuthenticationListener listener,
+                                 boolean sensorStopsAfterEachRead) {
+        this.moduleTag = moduleTag;
+        this.messages = messages;
+        this.restartCondition = restartCondition;
+        this.listener = new GuardedListener(listener);
+        this.sensorStopsAfterEachRead = sensorStopsAfterEachRead;
+    }
+
+    /**
+     * Start the request.
+     */
+    public void start(Sensor sensor) {
+        this.sensor = sensor;
+        sensor.start();
+    }
+
+    /**
+     * Return true once the request has succeeded, failed fatally, or been stopped.
+     */
+    public boolean isFinished() {
+        return listener.isClosed();
+    }
+
+    public int restartCount() {
+        return restartCount;
+    }
+
+    /**
+     * The sensor read a registered fingerprint.
+     * <p/>
+     * If the restart condition is a {@link RearmCondition} that asks for it, the sensor is started
+     * again after the success is delivered, unless the listener stopped the request.
+     */
+    public void onSuccess() {
+        if (listener.isClosed()) return;
+        if (restartCondition instanceof RearmCondition && ((RearmCondition) restartCondition).rearmAfterSuccess()) {
+            // Each success starts a new attempt, with its own restart budget.
+            restartCount = 0;
+            listener.onIntermediateSuccess(moduleTag);
+            if (!listener.isClosed()) sensor.start();
+        } else {
+            listener.onSuccess(moduleTag);
+        }
+    }
+
+    /**
+     * The module's api reported a failure.
+     *
+     * @param code            The code from the module's api.
+     * @param entry           The entry for the code in the module's {@link ErrorCodeTable}.
+     * @param platformMessage The message from the module's api, used if the code's entry doesn't
+     *                        have a message of its own.
+     */
+    public void onFailure(int code, ErrorCodeTable.Entry entry, CharSequence platformMessage) {
+        if (listener.isClosed() || entry.isIgnored()) return;
+        final CharSequence message = entry.message == ErrorCodeTable.NO_MESSAGE ?
+                platformMessage : messages.get(entry.message);
+
+        if (entry.fatal) {
+            if (entry.restartable && restartCondition.invoke(entry.reason, restartCount)) {
+                // Restarted failures aren't reported, since the sensor is still running.
+                final long delayMillis = restartDelayMillis(entry.reason);
+                restartCount++;
+                startSensor(delayMillis);
+            } else {
+                listener.onFailure(entry.reason, true, message, moduleTag, code);
+            }
+            return;
+        }
+
+        final boolean proceed = !entry.restartable || restartCondition.invoke(entry.reason, restartCount);
+        final long delayMillis = proceed && entry.restartable ? restartDelayMillis(entry.reason) : 0;
+        if (proceed && entry.restartable) restartCount++;
+        listener.onFailure(entry.reason, false, message, moduleTag, code);
+        if (!proceed) {
+            stop();
+        } else if (sensorStopsAfterEachRead) {
+            startSensor(delayMillis);
+        }
+    }
+
+    private long restartDelayMillis(AuthenticationFailureReason reason) {
+        return restartCondition instanceof RestartBackoff ?
+                ((RestartBackoff) restartCondition).restartDelayMillis(reason, restartCount) : 0;
+    }
+
+    private void startSensor(long delayMillis) {
+        if (delayMillis > 0) {
+            sensor.postDelayed(delayedStart, delayMillis);
+        } else {
+            sensor.start();
+        }
+    }
+
+    /**
+     * The request couldn't continue for a reason outside of the module's code table, such as the
+     * sensor failing to start.
+     */
+    public void fail(AuthenticationFailureReason reason, CharSequence message, int code) {
+        listener.onFailure(reason, true, message, moduleTag, code);
+    }
+
+    /**
+     * End the request without reporting anything else, and stop the sensor.
+     */
+    public void stop() {
+        if (listener.isClosed()) return;
+        listener.close();
+        if (sensor != null) sensor.stop();
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.ajalt.reprint.engine;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+
+/**
+ * A listener that forwards events until the first success or fatal failure, and drops any events
+ * after that.
+ * <p/>
+ * Events must be delivered on a single thread.
+ */
+public final class GuardedListener implements AuthenticationListener {
+    private AuthenticationListener listener;
+
+    public GuardedListener(AuthenticationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Return true if a terminal event has been forwarded, or {@link #close()} was called.
+     */
+    public boolean isClosed() {
+        return listener == null;
+    }
+
+    /**
+     * Drop all future events.
+     */
+    public void close() {
+        listener = null;
+    }
+
+    /**
+     * Forward a success without closing, for a request that keeps running after it.
+     */
+    public void onIntermediateSuccess(int moduleTag) {
+        final AuthenticationListener l = listener;
+        if (l != null) l.onSuccess(moduleTag);
+    }
+
+    @Override
+    public void onSuccess(int moduleTag) {
+        final AuthenticationListener l = listener;
+        if (l == null) return;
+        listener = null;
+        l.onSuccess(moduleTag);
+    }
+
+    @Override
+    public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                          CharSequence errorMessage, int moduleTag, int errorCode) {
+        final AuthenticationListener l = listener;
+        if (l == null) return;
+        if (fatal) listener = null;
+        l.onFailure(failureReason, fatal, errorMessage, moduleTag, errorCode);
+    }
+}
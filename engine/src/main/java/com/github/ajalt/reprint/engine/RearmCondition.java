@@ -0,0 +1,18 @@
+package com.github.ajalt.reprint.engine;
+
+/**
+ * Keeps a request's sensor armed after a success.
+ * <p/>
+ * A restart condition can also implement this interface to make a request continuous. The
+ * request then starts the sensor again after each success, through the same {@link
+ * AuthenticationRequest.Sensor}, the way it restarts it after a timeout. Conditions that don't
+ * implement it end the request at the first success.
+ */
+public interface RearmCondition {
+    /**
+     * Return true if the sensor should be started again after this success.
+     * <p/>
+     * This is called before the success is delivered to the request's listener.
+     */
+    boolean rearmAfterSuccess();
+}
@@ -0,0 +1,22 @@
+package com.github.ajalt.reprint.engine;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+
+/**
+ * Delays restarts that a {@link RestartCondition} allowed.
+ * <p/>
+ * A restart condition can also implement this interface to keep a flaky sensor from being
+ * restarted in a tight loop. Conditions that don't implement it restart immediately.
+ */
+public interface RestartBackoff {
+    /**
+     * Return the number of milliseconds to wait before restarting the sensor.
+     * <p/>
+     * This is called right after {@link RestartCondition#invoke} returned true for the same
+     * arguments.
+     *
+     * @param reason       The reason for the failure that is causing the restart.
+     * @param restartCount The number of times the request had been restarted before this restart.
+     */
+    long restartDelayMillis(AuthenticationFailureReason reason, int restartCount);
+}
@@ -0,0 +1,17 @@
+package com.github.ajalt.reprint.engine;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+
+/**
+ * Decides whether an authentication request continues after a failure.
+ */
+public interface RestartCondition {
+    /**
+     * Return true if the authentication should be restarted after the given failure.
+     *
+     * @param reason       The reason for this failure.
+     * @param restartCount The number of times this authentication call has already been
+     *                     restarted.
+     */
+    boolean invoke(AuthenticationFailureReason reason, int restartCount);
+}
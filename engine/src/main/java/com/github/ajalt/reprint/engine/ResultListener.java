@@ -0,0 +1,42 @@
+package com.github.ajalt.reprint.engine;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.AuthenticationResult;
+
+import static com.github.ajalt.reprint.core.AuthenticationResult.Status.FATAL_FAILURE;
+import static com.github.ajalt.reprint.core.AuthenticationResult.Status.NONFATAL_FAILURE;
+import static com.github.ajalt.reprint.core.AuthenticationResult.Status.SUCCESS;
+
+/**
+ * A listener that converts events into {@link AuthenticationResult}s.
+ * <p/>
+ * Results are delivered until the first success or fatal failure, and any events after that are
+ * dropped. Events must be delivered on a single thread.
+ */
+public abstract class ResultListener implements AuthenticationListener {
+    private boolean closed = false;
+
+    /**
+     * Called with each result.
+     *
+     * @param terminal True if this is the last result that will be delivered.
+     */
+    public abstract void onResult(AuthenticationResult result, boolean terminal);
+
+    @Override
+    public final void onSuccess(int moduleTag) {
+        if (closed) return;
+        closed = true;
+        onResult(AuthenticationResult.obtain(SUCCESS, null, "", moduleTag, 0), true);
+    }
+
+    @Override
+    public final void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                                CharSequence errorMessage, int moduleTag, int errorCode) {
+        if (closed) return;
+        if (fatal) closed = true;
+        onResult(AuthenticationResult.obtain(fatal ? FATAL_FAILURE : NONFATAL_FAILURE,
+                failureReason, errorMessage, moduleTag, errorCode), fatal);
+    }
+}
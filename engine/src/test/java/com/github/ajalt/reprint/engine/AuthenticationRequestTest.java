@@ -0,0 +1,250 @@
+package com.github.ajalt.reprint.engine;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.ErrorCodeTable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.AUTHENTICATION_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.LOCKED_OUT;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationRequestTest {
+    private static final int TAG = 7;
+    private static final ErrorCodeTable.Entry TIMEOUT_ENTRY = new ErrorCodeTable.Entry(TIMEOUT, true, true, ErrorCodeTable.NO_MESSAGE);
+    private static final ErrorCodeTable.Entry LOCKOUT_ENTRY = new ErrorCodeTable.Entry(LOCKED_OUT, true, false, ErrorCodeTable.NO_MESSAGE);
+    private static final ErrorCodeTable.Entry PARTIAL_ENTRY = new ErrorCodeTable.Entry(SENSOR_FAILED, false, true, 3);
+    private static final ErrorCodeTable.Entry FAILED_ENTRY = new ErrorCodeTable.Entry(AUTHENTICATION_FAILED, false, false, ErrorCodeTable.NO_MESSAGE);
+    private static final AuthenticationRequest.Messages MESSAGES = new AuthenticationRequest.Messages() {
+        @Override
+        public CharSequence get(int message) {
+            return "message " + message;
+        }
+    };
+
+    private static final RestartCondition NEVER_RESTART = new RestartCondition() {
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            return false;
+        }
+    };
+
+    @Mock public AuthenticationListener listener;
+    private final CountingSensor sensor = new CountingSensor();
+
+    private AuthenticationRequest start(RestartCondition restartCondition, boolean sensorStopsAfterEachRead) {
+        final AuthenticationRequest request = new AuthenticationRequest(TAG, MESSAGES, restartCondition, listener, sensorStopsAfterEachRead);
+        request.start(sensor);
+        return request;
+    }
+
+    @Test
+    public void restartedTimeouts_notReported() throws Exception {
+        final AuthenticationRequest request = start(new TimeoutRestarts(2), false);
+        request.onFailure(3, TIMEOUT_ENTRY, "timeout");
+        request.onFailure(3, TIMEOUT_ENTRY, "timeout");
+        assertThat(sensor.starts).isEqualTo(3);
+        assertThat(request.restartCount()).isEqualTo(2);
+        verifyNoMoreInteractions(listener);
+
+        request.onFailure(3, TIMEOUT_ENTRY, "timeout");
+        verify(listener).onFailure(TIMEOUT, true, "timeout", TAG, 3);
+        assertThat(request.isFinished()).isTrue();
+    }
+
+    @Test
+    public void fatalFailure_dropsLaterEvents() throws Exception {
+        final AuthenticationRequest request = start(new TimeoutRestarts(5), false);
+        request.onFailure(7, LOCKOUT_ENTRY, "locked");
+        request.onFailure(7, LOCKOUT_ENTRY, "locked");
+        request.onSuccess();
+
+        verify(listener).onFailure(LOCKED_OUT, true, "locked", TAG, 7);
+        verifyNoMoreInteractions(listener);
+        assertThat(sensor.starts).isEqualTo(1);
+    }
+
+    @Test
+    public void nonFatalFailure_restartsOneShotSensor() throws Exception {
+        final AuthenticationRequest request = start(new TimeoutRestarts(5), true);
+        request.onFailure(12, PARTIAL_ENTRY, null);
+        request.onFailure(16, FAILED_ENTRY, "not recognized");
+        request.onSuccess();
+
+        verify(listener).onFailure(SENSOR_FAILED, false, "message 3", TAG, 12);
+        verify(listener).onFailure(AUTHENTICATION_FAILED, false, "not recognized", TAG, 16);
+        verify(listener).onSuccess(TAG);
+        assertThat(sensor.starts).isEqualTo(3);
+        assertThat(sensor.stops).isEqualTo(0);
+    }
+
+    @Test
+    public void nonFatalFailure_refusedRestartStopsSensor() throws Exception {
+        final AuthenticationRequest request = start(NEVER_RESTART, false);
+        request.onFailure(1, PARTIAL_ENTRY, "partial");
+        request.onFailure(1, PARTIAL_ENTRY, "partial");
+
+        verify(listener).onFailure(SENSOR_FAILED, false, "message 3", TAG, 1);
+        verifyNoMoreInteractions(listener);
+        assertThat(sensor.stops).isEqualTo(1);
+        assertThat(request.isFinished()).isTrue();
+    }
+
+    @Test
+    public void ignoredCodes_notReported() throws Exception {
+        final AuthenticationRequest request = start(new TimeoutRestarts(5), false);
+        request.onFailure(5, ErrorCodeTable.Entry.IGNORED, "canceled");
+        verifyNoMoreInteractions(listener);
+        assertThat(request.isFinished()).isFalse();
+    }
+
+    @Test
+    public void stop_dropsLaterEvents() throws Exception {
+        final AuthenticationRequest request = start(new TimeoutRestarts(5), false);
+        request.stop();
+        request.stop();
+        request.onSuccess();
+
+        verifyNoMoreInteractions(listener);
+        assertThat(sensor.stops).isEqualTo(1);
+    }
+
+    @Test
+    public void backoff_delaysRestart() throws Exception {
+        final AuthenticationRequest request = start(new BackoffCondition(250), false);
+        request.onFailure(3, TIMEOUT_ENTRY, "timeout");
+
+        assertThat(sensor.starts).isEqualTo(1);
+        assertThat(sensor.delayMillis).isEqualTo(250);
+        assertThat(request.restartCount()).isEqualTo(1);
+
+        sensor.delayed.run();
+        assertThat(sensor.starts).isEqualTo(2);
+    }
+
+    @Test
+    public void backoff_delayedRestartDroppedAfterStop() throws Exception {
+        final AuthenticationRequest request = start(new BackoffCondition(250), true);
+        request.onFailure(12, PARTIAL_ENTRY, null);
+        request.stop();
+        sensor.delayed.run();
+
+        verify(listener).onFailure(SENSOR_FAILED, false, "message 3", TAG, 12);
+        assertThat(sensor.starts).isEqualTo(1);
+    }
+
+    @Test
+    public void rearm_restartsSameSensorAfterSuccess() throws Exception {
+        final AuthenticationRequest request = start(new ContinuousRestarts(1), false);
+        request.onFailure(3, TIMEOUT_ENTRY, "timeout");
+        request.onSuccess();
+        // The restart budget starts over with each success.
+        request.onFailure(3, TIMEOUT_ENTRY, "timeout");
+        request.onSuccess();
+
+        verify(listener, times(2)).onSuccess(TAG);
+        verifyNoMoreInteractions(listener);
+        assertThat(request.isFinished()).isFalse();
+        assertThat(sensor.starts).isEqualTo(5);
+        assertThat(sensor.stops).isEqualTo(0);
+    }
+
+    @Test
+    public void rearm_skippedWhenListenerStopsRequest() throws Exception {
+        final AuthenticationRequest request = start(new ContinuousRestarts(1), false);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                request.stop();
+                return null;
+            }
+        }).when(listener).onSuccess(TAG);
+
+        request.onSuccess();
+        request.onSuccess();
+
+        verify(listener).onSuccess(TAG);
+        assertThat(request.isFinished()).isTrue();
+        assertThat(sensor.starts).isEqualTo(1);
+    }
+
+    /** Restarts after every failure, except timeouts after the given number of restarts. */
+    private static class TimeoutRestarts implements RestartCondition {
+        private final int maxTimeoutRestarts;
+
+        TimeoutRestarts(int maxTimeoutRestarts) {
+            this.maxTimeoutRestarts = maxTimeoutRestarts;
+        }
+
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            return reason != TIMEOUT || restartCount < maxTimeoutRestarts;
+        }
+    }
+
+    /** Keeps the sensor armed after every success. */
+    private static class ContinuousRestarts extends TimeoutRestarts implements RearmCondition {
+        ContinuousRestarts(int maxTimeoutRestarts) {
+            super(maxTimeoutRestarts);
+        }
+
+        @Override
+        public boolean rearmAfterSuccess() {
+            return true;
+        }
+    }
+
+    private static class BackoffCondition implements RestartCondition, RestartBackoff {
+        private final long delayMillis;
+
+        BackoffCondition(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            return true;
+        }
+
+        @Override
+        public long restartDelayMillis(AuthenticationFailureReason reason, int restartCount) {
+            return delayMillis;
+        }
+    }
+
+    private static class CountingSensor implements AuthenticationRequest.Sensor {
+        int starts = 0;
+        int stops = 0;
+        Runnable delayed;
+        long delayMillis;
+
+        @Override
+        public void start() {
+            starts++;
+        }
+
+        @Override
+        public void stop() {
+            stops++;
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            this.delayed = task;
+            this.delayMillis = delayMillis;
+        }
+    }
+}
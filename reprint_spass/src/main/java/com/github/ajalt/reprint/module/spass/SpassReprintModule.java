@@ -1,15 +1,20 @@
 package com.github.ajalt.reprint.module.spass;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.github.ajalt.reprint.core.AuthenticationFailureReason;
 import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.ErrorCodeTable;
+import com.github.ajalt.reprint.core.LockoutReportingModule;
+import com.github.ajalt.reprint.core.MessageCatalog;
 import com.github.ajalt.reprint.core.Reprint;
-import com.github.ajalt.reprint.core.ReprintModule;
+import com.github.ajalt.reprint.engine.AuthenticationRequest;
 import com.samsung.android.sdk.pass.Spass;
 import com.samsung.android.sdk.pass.SpassFingerprint;
+import com.samsung.android.sdk.pass.SpassInvalidStateException;
 
-import androidx.annotation.StringRes;
 import androidx.core.os.CancellationSignal;
 
 import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
@@ -19,7 +24,7 @@ import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
  * <p>
  * This module supports all Samsung phones with fingerprint sensors.
  */
-public class SpassReprintModule implements ReprintModule {
+public class SpassReprintModule implements LockoutReportingModule {
     public static final int TAG = 2;
 
     /**
@@ -68,20 +73,58 @@ public class SpassReprintModule implements ReprintModule {
      */
     public static final int STATUS_LOCKED_OUT = 1003;
 
+    /**
+     * The sdk refused to start identifying for a reason other than a lockout.
+     */
+    public static final int STATUS_IDENTIFY_NOT_STARTED = 1004;
+
+    /**
+     * How the statuses passed to {@code onFinished} are reported.
+     * <p/>
+     * Device-specific statuses can be added to this table. Statuses that aren't in the table are
+     * reported as fatal {@link AuthenticationFailureReason#UNKNOWN} failures.
+     */
+    public static final ErrorCodeTable STATUS_CODES = new ErrorCodeTable(
+            new ErrorCodeTable.Entry(AuthenticationFailureReason.UNKNOWN, true, false, MessageCatalog.ERROR_HW_NOT_AVAILABLE))
+            .put(SpassFingerprint.STATUS_QUALITY_FAILED,
+                    new ErrorCodeTable.Entry(AuthenticationFailureReason.SENSOR_FAILED, false, true, MessageCatalog.ACQUIRED_PARTIAL))
+            .put(SpassFingerprint.STATUS_SENSOR_FAILED,
+                    new ErrorCodeTable.Entry(AuthenticationFailureReason.SENSOR_FAILED, false, true, MessageCatalog.ACQUIRED_INSUFFICIENT))
+            .put(SpassFingerprint.STATUS_AUTHENTIFICATION_FAILED,
+                    new ErrorCodeTable.Entry(AuthenticationFailureReason.AUTHENTICATION_FAILED, false, true, MessageCatalog.NOT_RECOGNIZED))
+            .put(SpassFingerprint.STATUS_TIMEOUT_FAILED,
+                    new ErrorCodeTable.Entry(TIMEOUT, true, true, MessageCatalog.ERROR_TIMEOUT))
+            // Don't send a cancelled message.
+            .put(SpassFingerprint.STATUS_USER_CANCELLED, ErrorCodeTable.Entry.IGNORED);
+
     private final Context context;
     private final Spass spass;
     private final Reprint.Logger logger;
     private SpassFingerprint spassFingerprint;
+    private volatile boolean featureCheckFailed;
+    private final AuthenticationRequest.Messages messages = new AuthenticationRequest.Messages() {
+        @Override
+        public CharSequence get(int message) {
+            return MessageCatalog.get(context, message);
+        }
+    };
 
-    @SuppressWarnings("unused") // Call via reflection
     public SpassReprintModule(Context context, Reprint.Logger logger) {
+        this(context, logger, newSpass(), null);
+    }
+
+    /**
+     * @param spass            The sdk to initialize, or null if it couldn't be created.
+     * @param spassFingerprint The fingerprint api, or null to create it when it's first needed.
+     */
+    SpassReprintModule(Context context, Reprint.Logger logger, Spass spass, SpassFingerprint spassFingerprint) {
         this.context = context.getApplicationContext();
         this.logger = logger;
+        this.spassFingerprint = spassFingerprint;
 
-        Spass s;
+        Spass s = spass;
         try {
-            s = new Spass();
-            s.initialize(this.context);
+            if (s != null) s.initialize(this.context);
         } catch (SecurityException e) {
             // Rethrow security exceptions, which happen when the manifest permission is missing.
             throw e;
@@ -89,7 +132,17 @@ public class SpassReprintModule implements ReprintModule {
             // The awful spass sdk throws an exception on non-samsung devices, so swallow it here.
             s = null;
         }
-        spass = s;
+        this.spass = s;
+    }
+
+    private static Spass newSpass() {
+        try {
+            return new Spass();
+        } catch (SecurityException e) {
+            throw e;
+        } catch (Exception ignored) {
+            return null;
+        }
     }
 
     @Override
@@ -97,11 +150,20 @@ public class SpassReprintModule implements ReprintModule {
         return TAG;
     }
 
+    @Override
+    public boolean isLockoutCode(int errorCode) {
+        return errorCode == STATUS_LOCKED_OUT;
+    }
+
     @Override
     public boolean isHardwarePresent() {
+        if (spass == null || featureCheckFailed) return false;
         try {
-            return spass != null && spass.isFeatureEnabled(Spass.DEVICE_FINGERPRINT);
+            return spass.isFeatureEnabled(Spass.DEVICE_FINGERPRINT);
         } catch (Exception ignored) {
+            // The sdk fails the same way on every call on devices that it doesn't support, so
+            // don't keep paying for the exception.
+            featureCheckFailed = true;
             return false;
         }
     }
@@ -124,94 +186,101 @@ public class SpassReprintModule implements ReprintModule {
     public void authenticate(final CancellationSignal cancellationSignal,
                              final AuthenticationListener listener,
                              final Reprint.RestartPredicate restartPredicate) {
-        authenticate(cancellationSignal, listener, restartPredicate, 0);
-    }
-
-    private void authenticate(final CancellationSignal cancellationSignal,
-                             final AuthenticationListener listener,
-                             final Reprint.RestartPredicate restartPredicate,
-                             final int restartCount) {
         if (spassFingerprint == null) {
             spassFingerprint = new SpassFingerprint(context);
         }
         try {
             if (!spassFingerprint.hasRegisteredFinger()) {
                 listener.onFailure(AuthenticationFailureReason.NO_FINGERPRINTS_REGISTERED, true,
-                        context.getString(R.string.fingerprint_error_hw_not_available), TAG, STATUS_NO_REGISTERED_FINGERPRINTS);
+                        MessageCatalog.get(context, MessageCatalog.ERROR_HW_NOT_AVAILABLE), TAG, STATUS_NO_REGISTERED_FINGERPRINTS);
                 return;
             }
         } catch (Throwable ignored) {
             listener.onFailure(AuthenticationFailureReason.HARDWARE_UNAVAILABLE, true,
-                    context.getString(R.string.fingerprint_error_hw_not_available), TAG, STATUS_HW_UNAVAILABLE);
+                    MessageCatalog.get(context, MessageCatalog.ERROR_HW_NOT_AVAILABLE), TAG, STATUS_HW_UNAVAILABLE);
             return;
         }
 
-        cancelFingerprintRequest(spassFingerprint);
-
-        try {
-            spassFingerprint.startIdentify(new SpassFingerprint.IdentifyListener() {
+        final IdentifyCallback callback = new IdentifyCallback(spassFingerprint, listener, restartPredicate);
+        callback.request.start(callback);
+        if (!callback.request.isFinished()) {
+            cancellationSignal.setOnCancelListener(callback);
+        }
+    }
 
-                @Override
-                public void onCompleted() {
-                }
+    /**
+     * Handles all of the events for a single authentication request. The same instance is passed to
+     * the sdk for every restart, so restarts don't allocate.
+     */
+    private class IdentifyCallback implements SpassFingerprint.IdentifyListener,
+            CancellationSignal.OnCancelListener, AuthenticationRequest.Sensor {
+        private final SpassFingerprint spassFingerprint;
+        private final AuthenticationRequest request;
+        /** Runs delayed restarts on the thread that started the request. */
+        private final Handler handler;
+
+        IdentifyCallback(SpassFingerprint spassFingerprint, AuthenticationListener listener,
+                         Reprint.RestartPredicate restartPredicate) {
+            this.spassFingerprint = spassFingerprint;
+            // The sdk stops identifying after every result, so it has to be started again after
+            // each non-fatal failure.
+            this.request = new AuthenticationRequest(TAG, messages, restartPredicate, listener, true);
+            // Requests are normally started on a looper thread, but fall back to the main thread
+            // rather than failing when they aren't.
+            final Looper looper = Looper.myLooper();
+            this.handler = new Handler(looper != null ? looper : Looper.getMainLooper());
+        }
 
-                @Override
-                public void onFinished(int eventStatus) {
-                    switch (eventStatus) {
-                        case SpassFingerprint.STATUS_AUTHENTIFICATION_SUCCESS:
-                        case SpassFingerprint.STATUS_AUTHENTIFICATION_PASSWORD_SUCCESS:
-                            listener.onSuccess(TAG);
-                            return;
-                        case SpassFingerprint.STATUS_QUALITY_FAILED:
-                            fail(AuthenticationFailureReason.SENSOR_FAILED, false, R.string.fingerprint_acquired_partial, eventStatus);
-                            break;
-                        case SpassFingerprint.STATUS_SENSOR_FAILED:
-                            fail(AuthenticationFailureReason.SENSOR_FAILED, false, R.string.fingerprint_acquired_insufficient, eventStatus);
-                            break;
-                        case SpassFingerprint.STATUS_AUTHENTIFICATION_FAILED:
-                            fail(AuthenticationFailureReason.AUTHENTICATION_FAILED, false, R.string.fingerprint_not_recognized, eventStatus);
-                            break;
-                        case SpassFingerprint.STATUS_TIMEOUT_FAILED:
-                            fail(TIMEOUT, true, R.string.fingerprint_error_timeout, eventStatus);
-                            break;
-                        default:
-                            fail(AuthenticationFailureReason.UNKNOWN, true, R.string.fingerprint_error_hw_not_available, eventStatus);
-                            break;
-                        case SpassFingerprint.STATUS_USER_CANCELLED:
-                            // Don't send a cancelled message.
-                            break;
-                    }
-                }
+        /** Start the sensor, or restart it after a failure. */
+        @Override
+        public void start() {
+            cancelFingerprintRequest(spassFingerprint);
+            try {
+                spassFingerprint.startIdentify(this);
+            } catch (Throwable t) {
+                logger.logException(t, "SpassReprintModule: fingerprint identification would not start");
+                // The sdk denies the request this way after too many failed attempts. Other
+                // errors are still reported as lockouts, but without the lockout status.
+                final boolean lockedOut = t instanceof SpassInvalidStateException
+                        && ((SpassInvalidStateException) t).getType() == SpassInvalidStateException.STATUS_OPERATION_DENIED;
+                request.fail(AuthenticationFailureReason.LOCKED_OUT, null,
+                        lockedOut ? STATUS_LOCKED_OUT : STATUS_IDENTIFY_NOT_STARTED);
+            }
+        }
 
-                private void fail(AuthenticationFailureReason reason, boolean fatal, @StringRes int message, int status) {
-                    fail(reason, fatal, context.getString(message), status);
-                }
+        @Override
+        public void stop() {
+            cancelFingerprintRequest(spassFingerprint);
+        }
 
-                private void fail(AuthenticationFailureReason reason, boolean fatal, String message, int status) {
-                    listener.onFailure(reason, fatal, message, TAG, status);
-                    if ((!fatal || reason == TIMEOUT) && restartPredicate.invoke(reason, restartCount)) {
-                        authenticate(cancellationSignal, listener, restartPredicate, restartCount + 1);
-                    }
-                }
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
 
-                @Override
-                public void onReady() {}
+        @Override
+        public void onFinished(int eventStatus) {
+            if (eventStatus == SpassFingerprint.STATUS_AUTHENTIFICATION_SUCCESS
+                    || eventStatus == SpassFingerprint.STATUS_AUTHENTIFICATION_PASSWORD_SUCCESS) {
+                request.onSuccess();
+            } else {
+                request.onFailure(eventStatus, STATUS_CODES.get(eventStatus), null);
+            }
+        }
 
-                @Override
-                public void onStarted() {}
-            });
-        } catch (Throwable t) {
-            logger.logException(t, "SpassReprintModule: fingerprint identification would not start");
-            listener.onFailure(AuthenticationFailureReason.LOCKED_OUT, true, null, TAG, STATUS_LOCKED_OUT);
-            return;
+        @Override
+        public void onCancel() {
+            request.stop();
         }
 
-        cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
-            @Override
-            public void onCancel() {
-                cancelFingerprintRequest(spassFingerprint);
-            }
-        });
+        @Override
+        public void onReady() {}
+
+        @Override
+        public void onStarted() {}
+
+        @Override
+        public void onCompleted() {}
     }
 
     private static void cancelFingerprintRequest(SpassFingerprint spassFingerprint) {
@@ -0,0 +1,22 @@
+package com.github.ajalt.reprint.module.spass;
+
+import android.content.Context;
+
+import com.github.ajalt.reprint.core.Reprint;
+import com.github.ajalt.reprint.core.ReprintModule;
+import com.github.ajalt.reprint.core.ReprintModuleProvider;
+
+/**
+ * Makes the {@link SpassReprintModule} available to {@link Reprint#initialize(Context)}.
+ */
+public class SpassReprintModuleProvider implements ReprintModuleProvider {
+    @Override
+    public int tag() {
+        return SpassReprintModule.TAG;
+    }
+
+    @Override
+    public ReprintModule create(Context context, Reprint.Logger logger) {
+        return new SpassReprintModule(context, logger);
+    }
+}
@@ -1,20 +1,18 @@
 package com.github.ajalt.reprint.rxjava;
 
 
-import com.github.ajalt.reprint.core.AuthenticationFailureReason;
 import com.github.ajalt.reprint.core.AuthenticationListener;
 import com.github.ajalt.reprint.core.AuthenticationResult;
+import com.github.ajalt.reprint.core.AuthenticationSession;
 import com.github.ajalt.reprint.core.Reprint;
 import com.github.ajalt.reprint.core.RestartPredicates;
+import com.github.ajalt.reprint.engine.ResultListener;
 
 import rx.Emitter;
 import rx.Observable;
-import rx.functions.Action0;
 import rx.functions.Action1;
+import rx.functions.Cancellable;
 
-import static com.github.ajalt.reprint.core.AuthenticationResult.Status.FATAL_FAILURE;
-import static com.github.ajalt.reprint.core.AuthenticationResult.Status.NONFATAL_FAILURE;
-import static com.github.ajalt.reprint.core.AuthenticationResult.Status.SUCCESS;
 
 /**
  * RxJava 1 interface to Reprint authentication.
@@ -41,38 +39,25 @@ public class RxReprint {
         return Observable.create(new Action1<Emitter<AuthenticationResult>>() {
             @Override
             public void call(final Emitter<AuthenticationResult> emitter) {
-                Reprint.authenticate(new AuthenticationListener() {
-                    private boolean listening = true;
-
+                final AuthenticationSession session = Reprint.authenticate(new ResultListener() {
                     @Override
-                    public void onSuccess(int moduleTag) {
-                        if (!listening) return;
-                        listening = false;
-                        emitter.onNext(new AuthenticationResult(SUCCESS, null, "", moduleTag, 0));
-                        emitter.onCompleted();
-                    }
-
-                    @Override
-                    public void onFailure(AuthenticationFailureReason failureReason,
-                                          boolean fatal, CharSequence errorMessage,
-                                          int moduleTag, int errorCode) {
-                        if (!listening) return;
-
-                        emitter.onNext(new AuthenticationResult(
-                                fatal ? FATAL_FAILURE : NONFATAL_FAILURE,
-                                failureReason, errorMessage, moduleTag, errorCode));
-                        if (fatal) {
+                    public void onResult(AuthenticationResult result, boolean terminal) {
+                        emitter.onNext(result);
+                        if (terminal) {
                             emitter.onCompleted();
                         }
                     }
                 }, restartPredicate);
+
+                // Only cancel this subscription's request, not one started by someone else since.
+                emitter.setCancellation(new Cancellable() {
+                    @Override
+                    public void cancel() {
+                        session.cancel();
+                    }
+                });
             }
-        }, Emitter.BackpressureMode.LATEST).doOnUnsubscribe(new Action0() {
-            @Override
-            public void call() {
-                Reprint.cancelAuthentication();
-            }
-        });
+        }, Emitter.BackpressureMode.LATEST);
     }
 }
 
@@ -1,21 +1,19 @@
 package com.github.ajalt.reprint.rxjava2;
 
 
-import com.github.ajalt.reprint.core.AuthenticationFailureReason;
 import com.github.ajalt.reprint.core.AuthenticationListener;
 import com.github.ajalt.reprint.core.AuthenticationResult;
+import com.github.ajalt.reprint.core.AuthenticationSession;
 import com.github.ajalt.reprint.core.Reprint;
 import com.github.ajalt.reprint.core.RestartPredicates;
+import com.github.ajalt.reprint.engine.ResultListener;
 
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.FlowableEmitter;
 import io.reactivex.FlowableOnSubscribe;
-import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
 
-import static com.github.ajalt.reprint.core.AuthenticationResult.Status.FATAL_FAILURE;
-import static com.github.ajalt.reprint.core.AuthenticationResult.Status.NONFATAL_FAILURE;
-import static com.github.ajalt.reprint.core.AuthenticationResult.Status.SUCCESS;
 
 /**
  * RxJava 2 interface to Reprint authentication.
@@ -42,38 +40,25 @@ public class RxReprint {
         return Flowable.create(new FlowableOnSubscribe<AuthenticationResult>() {
             @Override
             public void subscribe(final FlowableEmitter<AuthenticationResult> emitter) {
-                Reprint.authenticate(new AuthenticationListener() {
-                    private boolean listening = true;
-
+                final AuthenticationSession session = Reprint.authenticate(new ResultListener() {
                     @Override
-                    public void onSuccess(int moduleTag) {
-                        if (!listening) return;
-                        listening = false;
-                        emitter.onNext(new AuthenticationResult(SUCCESS, null, "", moduleTag, 0));
-                        emitter.onComplete();
-                    }
-
-                    @Override
-                    public void onFailure(AuthenticationFailureReason failureReason,
-                                          boolean fatal, CharSequence errorMessage,
-                                          int moduleTag, int errorCode) {
-                        if (!listening) return;
-
-                        emitter.onNext(new AuthenticationResult(
-                                fatal ? FATAL_FAILURE : NONFATAL_FAILURE,
-                                failureReason, errorMessage, moduleTag, errorCode));
-                        if (fatal) {
+                    public void onResult(AuthenticationResult result, boolean terminal) {
+                        emitter.onNext(result);
+                        if (terminal) {
                             emitter.onComplete();
                         }
                     }
                 }, restartPredicate);
+
+                // Only cancel this subscription's request, not one started by someone else since.
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() {
+                        session.cancel();
+                    }
+                });
             }
-        }, BackpressureStrategy.LATEST).doOnCancel(new Action() {
-            @Override
-            public void run() throws Exception {
-                Reprint.cancelAuthentication();
-            }
-        });
+        }, BackpressureStrategy.LATEST);
     }
 }
 
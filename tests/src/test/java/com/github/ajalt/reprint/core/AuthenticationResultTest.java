@@ -0,0 +1,35 @@
+package com.github.ajalt.reprint.core;
+
+import org.junit.Test;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.AUTHENTICATION_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationResult.Status.NONFATAL_FAILURE;
+import static com.github.ajalt.reprint.core.AuthenticationResult.Status.SUCCESS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class AuthenticationResultTest {
+    @Test
+    public void obtain_identicalResultsShareInstance() throws Exception {
+        final AuthenticationResult first = AuthenticationResult.obtain(SUCCESS, null, "", 1, 0);
+        final AuthenticationResult second = AuthenticationResult.obtain(SUCCESS, null, "", 1, 0);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void obtain_comparesMessageContents() throws Exception {
+        final AuthenticationResult first = AuthenticationResult.obtain(NONFATAL_FAILURE, SENSOR_FAILED, "Try again.", 1, 2);
+        final AuthenticationResult second = AuthenticationResult.obtain(NONFATAL_FAILURE, SENSOR_FAILED, new StringBuilder("Try again."), 1, 2);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void obtain_differentValues() throws Exception {
+        final AuthenticationResult result = AuthenticationResult.obtain(NONFATAL_FAILURE, SENSOR_FAILED, "Try again.", 1, 2);
+
+        assertThat(AuthenticationResult.obtain(NONFATAL_FAILURE, SENSOR_FAILED, "Noch einmal.", 1, 2)).isNotSameAs(result);
+        assertThat(AuthenticationResult.obtain(NONFATAL_FAILURE, SENSOR_FAILED, "Try again.", 1, 3)).isNotSameAs(result);
+        assertThat(AuthenticationResult.obtain(NONFATAL_FAILURE, AUTHENTICATION_FAILED, "Try again.", 1, 2).failureReason)
+                .isEqualTo(AUTHENTICATION_FAILED);
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.ajalt.reprint.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.LOCKED_OUT;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CoalescingListenerTest {
+    private static final int TAG = 3;
+    private static final int PARTIAL = 1;
+    private static final int INSUFFICIENT = 2;
+
+    @Mock public AuthenticationListener listener;
+    private ScheduledExecutorService scheduler;
+    private CoalescingListener coalescing;
+
+    @Before
+    public void setup() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        final Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        coalescing = new CoalescingListener(listener, TimeUnit.MILLISECONDS.toNanos(100), scheduler, direct);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void repeats_onlyNewestDeliveredAfterWindow() throws Exception {
+        coalescing.onFailure(SENSOR_FAILED, false, "1", TAG, PARTIAL);
+        coalescing.onFailure(SENSOR_FAILED, false, "2", TAG, PARTIAL);
+        coalescing.onFailure(SENSOR_FAILED, false, "3", TAG, PARTIAL);
+
+        verify(listener).onFailure(SENSOR_FAILED, false, "1", TAG, PARTIAL);
+        verify(listener, timeout(1000)).onFailure(SENSOR_FAILED, false, "3", TAG, PARTIAL);
+        verify(listener, never()).onFailure(SENSOR_FAILED, false, "2", TAG, PARTIAL);
+    }
+
+    @Test
+    public void differentEvent_deliveredImmediately() throws Exception {
+        coalescing.onFailure(SENSOR_FAILED, false, "1", TAG, PARTIAL);
+        coalescing.onFailure(SENSOR_FAILED, false, "2", TAG, PARTIAL);
+        coalescing.onFailure(SENSOR_FAILED, false, "3", TAG, INSUFFICIENT);
+
+        verify(listener).onFailure(SENSOR_FAILED, false, "3", TAG, INSUFFICIENT);
+        verify(listener, after(300).never()).onFailure(SENSOR_FAILED, false, "2", TAG, PARTIAL);
+    }
+
+    @Test
+    public void terminalEvents_deliveredImmediately() throws Exception {
+        coalescing.onFailure(SENSOR_FAILED, false, "1", TAG, PARTIAL);
+        coalescing.onFailure(SENSOR_FAILED, false, "2", TAG, PARTIAL);
+        coalescing.onFailure(LOCKED_OUT, true, "locked", TAG, 7);
+        coalescing.onFailure(LOCKED_OUT, true, "locked", TAG, 7);
+
+        verify(listener, times(2)).onFailure(LOCKED_OUT, true, "locked", TAG, 7);
+        verify(listener, after(300).never()).onFailure(SENSOR_FAILED, false, "2", TAG, PARTIAL);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.ajalt.reprint.core;
+
+import org.junit.Test;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.LOCKED_OUT;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.UNKNOWN;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ErrorCodeTableTest {
+    private static final ErrorCodeTable.Entry FALLBACK =
+            new ErrorCodeTable.Entry(UNKNOWN, true, false, ErrorCodeTable.NO_MESSAGE);
+
+    @Test
+    public void get_unmappedCodesUseFallback() throws Exception {
+        final ErrorCodeTable table = new ErrorCodeTable(FALLBACK);
+        assertThat(table.get(0)).isSameAs(FALLBACK);
+        assertThat(table.get(63)).isSameAs(FALLBACK);
+        assertThat(table.get(1001)).isSameAs(FALLBACK);
+        assertThat(table.get(-5)).isSameAs(FALLBACK);
+    }
+
+    @Test
+    public void get_denseAndSparseCodes() throws Exception {
+        final ErrorCodeTable.Entry timeout = new ErrorCodeTable.Entry(TIMEOUT, true, true, MessageCatalog.ERROR_TIMEOUT);
+        final ErrorCodeTable.Entry lockout = new ErrorCodeTable.Entry(LOCKED_OUT, true, false, MessageCatalog.ERROR_LOCKOUT);
+        final ErrorCodeTable.Entry vendor = new ErrorCodeTable.Entry(SENSOR_FAILED, false, true, ErrorCodeTable.NO_MESSAGE);
+        final ErrorCodeTable table = new ErrorCodeTable(FALLBACK)
+                .put(3, timeout)
+                .put(1003, lockout)
+                .put(1000, vendor)
+                .put(-1, ErrorCodeTable.Entry.IGNORED);
+
+        assertThat(table.get(3)).isSameAs(timeout);
+        assertThat(table.get(1003)).isSameAs(lockout);
+        assertThat(table.get(1000)).isSameAs(vendor);
+        assertThat(table.get(-1).isIgnored()).isTrue();
+        assertThat(table.get(1002)).isSameAs(FALLBACK);
+    }
+
+    @Test
+    public void put_replacesExistingEntries() throws Exception {
+        final ErrorCodeTable.Entry vendor = new ErrorCodeTable.Entry(SENSOR_FAILED, false, true, ErrorCodeTable.NO_MESSAGE);
+        final ErrorCodeTable table = new ErrorCodeTable(FALLBACK)
+                .put(5, ErrorCodeTable.Entry.IGNORED)
+                .put(2000, ErrorCodeTable.Entry.IGNORED);
+
+        table.put(5, vendor).put(2000, vendor);
+
+        assertThat(table.get(5)).isSameAs(vendor);
+        assertThat(table.get(2000)).isSameAs(vendor);
+    }
+
+    @Test
+    public void put_terminalTableAcceptsFatalAndIgnoredEntries() throws Exception {
+        final ErrorCodeTable.Entry timeout = new ErrorCodeTable.Entry(TIMEOUT, true, true, MessageCatalog.ERROR_TIMEOUT);
+        final ErrorCodeTable table = new ErrorCodeTable(FALLBACK, true)
+                .put(3, timeout)
+                .put(5, ErrorCodeTable.Entry.IGNORED);
+
+        assertThat(table.get(3)).isSameAs(timeout);
+        assertThat(table.get(5).isIgnored()).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void put_terminalTableRejectsNonFatalEntries() throws Exception {
+        new ErrorCodeTable(FALLBACK, true).put(1000, new ErrorCodeTable.Entry(SENSOR_FAILED, false, true, ErrorCodeTable.NO_MESSAGE));
+    }
+}
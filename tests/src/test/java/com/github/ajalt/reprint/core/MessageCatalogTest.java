@@ -0,0 +1,80 @@
+package com.github.ajalt.reprint.core;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import com.github.ajalt.library.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MessageCatalogTest {
+    @Mock public Context context;
+    @Mock public Resources resources;
+    public Configuration configuration;
+
+    @Before
+    public void setup() {
+        configuration = new Configuration();
+        when(context.getResources()).thenReturn(resources);
+        when(resources.getConfiguration()).thenReturn(configuration);
+        when(resources.getString(anyInt())).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return configuration.locale.getLanguage() + ":" + invocation.getArgument(0);
+            }
+        });
+    }
+
+    @Test
+    public void messages_resolvedOncePerLocale() throws Exception {
+        configuration.locale = new Locale("xa");
+        final String first = MessageCatalog.get(context, MessageCatalog.NOT_RECOGNIZED);
+        final String second = MessageCatalog.forReason(context, AuthenticationFailureReason.AUTHENTICATION_FAILED);
+
+        assertThat(first).isEqualTo("xa:" + R.string.fingerprint_not_recognized);
+        assertThat(second).isSameAs(first);
+        verify(resources, times(1)).getString(R.string.fingerprint_not_recognized);
+    }
+
+    @Test
+    public void localeChange_rebuildsMessages() throws Exception {
+        configuration.locale = new Locale("xb");
+        assertThat(MessageCatalog.get(context, MessageCatalog.ERROR_TIMEOUT))
+                .isEqualTo("xb:" + R.string.fingerprint_error_timeout);
+
+        configuration.locale = new Locale("xc");
+        assertThat(MessageCatalog.get(context, MessageCatalog.ERROR_TIMEOUT))
+                .isEqualTo("xc:" + R.string.fingerprint_error_timeout);
+        assertThat(MessageCatalog.forReason(context, AuthenticationFailureReason.NO_HARDWARE))
+                .isEqualTo("xc:" + R.string.fingerprint_error_hw_not_available);
+    }
+
+    @Test
+    public void newConfigurationWithSameLocale_keepsMessages() throws Exception {
+        configuration.locale = new Locale("xd");
+        final String first = MessageCatalog.get(context, MessageCatalog.ERROR_LOCKOUT);
+
+        final Configuration replaced = new Configuration();
+        replaced.locale = new Locale("xd");
+        when(resources.getConfiguration()).thenReturn(replaced);
+
+        assertThat(MessageCatalog.get(context, MessageCatalog.ERROR_LOCKOUT)).isSameAs(first);
+        verify(resources, times(1)).getString(R.string.fingerprint_error_lockout);
+    }
+}
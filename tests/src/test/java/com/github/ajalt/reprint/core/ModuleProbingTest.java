@@ -0,0 +1,93 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ModuleProbingTest {
+    private static final long PROBE_MILLIS = 200;
+
+    @Test
+    public void probeInParallel_takesAsLongAsSlowestProbe() throws Exception {
+        final SlowModule first = new SlowModule(true);
+        final SlowModule absent = new SlowModule(false);
+        final SlowModule last = new SlowModule(true);
+
+        final long start = System.nanoTime();
+        final List<ReprintModule> present = ReprintInternal.INSTANCE.probeInParallel(
+                candidates(first, absent, last), ReprintInternal.NULL_LOGGER);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Probing one after another would take three times as long.
+        assertThat(elapsedMillis).isLessThan(2 * PROBE_MILLIS);
+        assertThat(present).containsExactly(first, last);
+    }
+
+    @Test
+    public void probeInParallel_keepsPriorityOrder() throws Exception {
+        final ReprintModule slow = new SlowModule(true);
+        final ReprintModule fast = new TestReprintModule();
+
+        final List<ReprintModule> present = ReprintInternal.INSTANCE.probeInParallel(
+                candidates(slow, fast), ReprintInternal.NULL_LOGGER);
+
+        assertThat(present).containsExactly(slow, fast);
+    }
+
+    @Test
+    public void probeInParallel_skipsFailedCandidates() throws Exception {
+        final ReprintModule module = new TestReprintModule();
+        final List<Callable<ReprintModule>> candidates = new ArrayList<>();
+        candidates.add(new Callable<ReprintModule>() {
+            @Override
+            public ReprintModule call() {
+                throw new IllegalStateException("sdk init failed");
+            }
+        });
+        candidates.addAll(candidates(null, module));
+
+        final List<ReprintModule> present = ReprintInternal.INSTANCE.probeInParallel(candidates, ReprintInternal.NULL_LOGGER);
+
+        assertThat(present).containsExactly(module);
+    }
+
+    private static List<Callable<ReprintModule>> candidates(ReprintModule... modules) {
+        final List<Callable<ReprintModule>> candidates = new ArrayList<>();
+        for (final ReprintModule module : Arrays.asList(modules)) {
+            candidates.add(new Callable<ReprintModule>() {
+                @Override
+                public ReprintModule call() {
+                    return module;
+                }
+            });
+        }
+        return candidates;
+    }
+
+    /** A module that takes a while to report whether its hardware is present. */
+    private static class SlowModule extends TestReprintModule {
+        private final boolean hardwarePresent;
+
+        SlowModule(boolean hardwarePresent) {
+            this.hardwarePresent = hardwarePresent;
+        }
+
+        @Override
+        public boolean isHardwarePresent() {
+            try {
+                Thread.sleep(PROBE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return hardwarePresent;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.ajalt.reprint.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.github.ajalt.reprint.testing.TestApp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApp.class, manifest = Config.NONE)
+public class ModuleSelectionCacheTest {
+    private SharedPreferences prefs;
+
+    @Before
+    public void setup() {
+        prefs = RuntimeEnvironment.application.getSharedPreferences("test_module_selection", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void read_empty() throws Exception {
+        assertThat(new ModuleSelectionCache(prefs, "build").read()).isNull();
+    }
+
+    @Test
+    public void read_returnsWrittenEntry() throws Exception {
+        final ModuleSelectionCache cache = new ModuleSelectionCache(prefs, "build");
+        cache.write(7, new ReprintInternal.Capabilities(true, false));
+
+        final ModuleSelectionCache.Entry entry = cache.read();
+        assertThat(entry).isNotNull();
+        assertThat(entry.tag).isEqualTo(7);
+        assertThat(entry.capabilities).isEqualTo(new ReprintInternal.Capabilities(true, false));
+    }
+
+    @Test
+    public void read_otherBuild() throws Exception {
+        new ModuleSelectionCache(prefs, "build/1").write(7, new ReprintInternal.Capabilities(true, true));
+        assertThat(new ModuleSelectionCache(prefs, "build/2").read()).isNull();
+    }
+}
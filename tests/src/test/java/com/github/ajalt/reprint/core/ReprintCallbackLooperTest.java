@@ -0,0 +1,130 @@
+package com.github.ajalt.reprint.core;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import com.github.ajalt.reprint.testing.TestApp;
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApp.class, manifest = Config.NONE)
+public class ReprintCallbackLooperTest {
+    private HandlerThread thread;
+    private ShadowLooper looper;
+    private AuthenticationListener listener;
+
+    @Before
+    public void setup() {
+        thread = new HandlerThread("callbacks");
+        thread.start();
+        looper = shadowOf(thread.getLooper());
+        // Events only reach the listener when the looper runs them, so a paused looper shows
+        // whether they were posted to it.
+        looper.pause();
+        listener = mock(AuthenticationListener.class);
+    }
+
+    @After
+    public void tearDown() {
+        Reprint.cancelAuthentication();
+        thread.quit();
+    }
+
+    private AuthenticationSession authenticate() {
+        return Reprint.authenticate(listener, RestartPredicates.defaultPredicate(),
+                new AuthenticationOptions().callbackLooper(thread.getLooper()));
+    }
+
+    @Test
+    public void moduleEvents_deliveredOnLooper() throws Exception {
+        final TestReprintModule module = new TestReprintModule();
+        Reprint.registerModule(module);
+
+        authenticate();
+        module.listener.onFailure(AuthenticationFailureReason.SENSOR_FAILED, false, "", module.TAG, 1);
+        module.listener.onSuccess(module.TAG);
+        verifyZeroInteractions(listener);
+
+        looper.idle();
+        verify(listener).onFailure(eq(AuthenticationFailureReason.SENSOR_FAILED), eq(false), eq(""), eq(module.TAG), eq(1));
+        verify(listener).onSuccess(module.TAG);
+    }
+
+    @Test
+    public void failureWhileStarting_deliveredOnLooper() throws Exception {
+        final FailingModule module = new FailingModule();
+        Reprint.registerModule(module);
+
+        authenticate();
+        verifyZeroInteractions(listener);
+
+        looper.idle();
+        verify(listener).onFailure(eq(AuthenticationFailureReason.UNKNOWN), eq(true), eq(""), eq(module.TAG), eq(0));
+    }
+
+    @Test
+    public void handlerModule_receivesHandlerAndPostsFailures() throws Exception {
+        final FailingHandlerModule module = new FailingHandlerModule();
+        Reprint.registerModule(module);
+
+        authenticate();
+        assertThat(module.handler.getLooper()).isSameAs(thread.getLooper());
+        verifyZeroInteractions(listener);
+
+        looper.idle();
+        verify(listener).onFailure(eq(AuthenticationFailureReason.UNKNOWN), eq(true), eq(""), eq(module.TAG), eq(0));
+    }
+
+    @Test
+    public void eventsOnLooperThread_deliveredDirectly() throws Exception {
+        final ShadowLooper mainLooper = shadowOf(Looper.getMainLooper());
+        mainLooper.pause();
+        try {
+            new HandlerAuthenticationListener(new Handler(Looper.getMainLooper()), listener).onSuccess(3);
+            verify(listener).onSuccess(3);
+        } finally {
+            mainLooper.unPause();
+        }
+    }
+
+    /** A module whose sensor fails on the calling thread as soon as it's started. */
+    private static class FailingModule extends TestReprintModule {
+        @Override
+        public void authenticate(CancellationSignal cancellationSignal, AuthenticationListener listener,
+                                 Reprint.RestartPredicate restartPredicate) {
+            super.authenticate(cancellationSignal, listener, restartPredicate);
+            listener.onFailure(AuthenticationFailureReason.UNKNOWN, true, "", TAG, 0);
+        }
+    }
+
+    /** Like the marshmallow module when the system service is missing. */
+    private static class FailingHandlerModule extends TestReprintModule implements HandlerReprintModule {
+        Handler handler;
+
+        @Override
+        public void authenticate(CancellationSignal cancellationSignal, AuthenticationListener listener,
+                                 Reprint.RestartPredicate restartPredicate, Handler handler) {
+            this.handler = handler;
+            super.authenticate(cancellationSignal, listener, restartPredicate);
+            listener.onFailure(AuthenticationFailureReason.UNKNOWN, true, "", TAG, 0);
+        }
+    }
+}
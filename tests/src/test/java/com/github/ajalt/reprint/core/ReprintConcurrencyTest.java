@@ -0,0 +1,178 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ReprintConcurrencyTest {
+    private static final int ITERATIONS = 2000;
+    private static final int THREADS = 4;
+
+    private TestReprintModule module;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        module = new TestReprintModule();
+        Reprint.registerModule(module);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+        Reprint.cancelAuthentication();
+    }
+
+    @Test
+    public void cancelRacingTerminalEvents_deliversAtMostOneTerminalEvent() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            final CountingListener listener = new CountingListener();
+            final AuthenticationSession session = Reprint.authenticate(listener);
+            final AuthenticationListener moduleListener = module.listener;
+            final CancellationSignal signal = module.cancellationSignal;
+
+            runConcurrently(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            session.cancel();
+                        }
+                    },
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            moduleListener.onSuccess(module.TAG);
+                        }
+                    },
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            moduleListener.onFailure(AuthenticationFailureReason.HARDWARE_UNAVAILABLE, true, "", module.TAG, 0);
+                        }
+                    },
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            moduleListener.onFailure(AuthenticationFailureReason.SENSOR_FAILED, false, "", module.TAG, 0);
+                        }
+                    });
+
+            assertThat(session.isActive()).isFalse();
+            assertThat(listener.terminalEvents.get()).isLessThanOrEqualTo(1);
+            // If the cancel won, the sensor must have been told to stop.
+            if (listener.terminalEvents.get() == 0) {
+                assertThat(signal.isCanceled()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void concurrentRequests_leaveOnlyOneSensorRunning() throws Exception {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            module.cancellationSignals.clear();
+            final Runnable start = new Runnable() {
+                @Override
+                public void run() {
+                    Reprint.authenticate(new CountingListener());
+                }
+            };
+            runConcurrently(start, start, start, start);
+
+            int running = 0;
+            for (CancellationSignal signal : module.cancellationSignals) {
+                if (!signal.isCanceled()) running++;
+            }
+            assertThat(running).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void cancelDuringStart_isNotLost() throws Exception {
+        final BlockingModule blockingModule = new BlockingModule();
+        Reprint.registerModule(blockingModule);
+        final CountingListener listener = new CountingListener();
+
+        final Future<AuthenticationSession> session = executor.submit(new Callable<AuthenticationSession>() {
+            @Override
+            public AuthenticationSession call() throws Exception {
+                return Reprint.authenticate(listener);
+            }
+        });
+        blockingModule.entered.await();
+        Reprint.cancelAuthentication();
+        blockingModule.release.countDown();
+
+        assertThat(session.get().isActive()).isFalse();
+        assertThat(blockingModule.cancellationSignal.isCanceled()).isTrue();
+        blockingModule.listener.onSuccess(blockingModule.TAG);
+        assertThat(listener.terminalEvents.get()).isEqualTo(0);
+    }
+
+    private void runConcurrently(Runnable... tasks) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(tasks.length);
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (final Runnable task : tasks) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    barrier.await();
+                    task.run();
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    /** A module whose authenticate call doesn't return until the test lets it. */
+    private static class BlockingModule extends TestReprintModule {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void authenticate(CancellationSignal cancellationSignal, AuthenticationListener listener,
+                                 Reprint.RestartPredicate restartPredicate) {
+            super.authenticate(cancellationSignal, listener, restartPredicate);
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class CountingListener implements AuthenticationListener {
+        final AtomicInteger terminalEvents = new AtomicInteger();
+
+        @Override
+        public void onSuccess(int moduleTag) {
+            terminalEvents.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                              CharSequence errorMessage, int moduleTag, int errorCode) {
+            if (fatal) terminalEvents.incrementAndGet();
+        }
+    }
+}
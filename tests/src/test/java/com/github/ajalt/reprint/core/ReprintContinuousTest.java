@@ -0,0 +1,158 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.engine.RearmCondition;
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReprintContinuousTest {
+    public TestReprintModule module;
+
+    @Mock
+    public AuthenticationListener listener;
+
+    @Before
+    public void setup() {
+        module = new TestReprintModule();
+        Reprint.registerModule(module);
+    }
+
+    @After
+    public void tearDown() {
+        Reprint.cancelAuthentication();
+    }
+
+    private AuthenticationSession authenticateContinuously() {
+        return Reprint.authenticate(listener, RestartPredicates.defaultPredicate(),
+                new AuthenticationOptions().continuous(true));
+    }
+
+    @Test
+    public void successes_keepSensorArmed() throws Exception {
+        final AuthenticationSession session = authenticateContinuously();
+
+        module.listener.onSuccess(module.TAG);
+        module.listener.onSuccess(module.TAG);
+
+        verify(listener, times(2)).onSuccess(module.TAG);
+        assertThat(session.isActive()).isTrue();
+        assertThat(module.cancellationSignals).hasSize(3);
+        assertThat(module.cancellationSignals.get(1)).isSameAs(module.cancellationSignals.get(0));
+        assertThat(module.cancellationSignals.get(2)).isSameAs(module.cancellationSignals.get(0));
+        assertThat(module.cancellationSignal.isCanceled()).isFalse();
+    }
+
+    @Test
+    public void moduleRearmingItself_notAuthenticatedAgain() throws Exception {
+        final AuthenticationSession session = authenticateContinuously();
+        final RearmCondition rearm = (RearmCondition) module.restartPredicate;
+
+        assertThat(rearm.rearmAfterSuccess()).isTrue();
+        module.listener.onSuccess(module.TAG);
+        assertThat(rearm.rearmAfterSuccess()).isTrue();
+        module.listener.onSuccess(module.TAG);
+
+        verify(listener, times(2)).onSuccess(module.TAG);
+        assertThat(session.isActive()).isTrue();
+        assertThat(module.cancellationSignals).hasSize(1);
+
+        session.cancel();
+        assertThat(rearm.rearmAfterSuccess()).isFalse();
+    }
+
+    @Test
+    public void singleSuccess_notRearmedByModule() throws Exception {
+        Reprint.authenticate(listener, RestartPredicates.defaultPredicate());
+
+        assertThat(((RearmCondition) module.restartPredicate).rearmAfterSuccess()).isFalse();
+    }
+
+    @Test
+    public void cancel_endsSession() throws Exception {
+        final AuthenticationSession session = authenticateContinuously();
+        module.listener.onSuccess(module.TAG);
+        final AuthenticationListener rearmed = module.listener;
+
+        session.cancel();
+        rearmed.onSuccess(module.TAG);
+
+        verify(listener).onSuccess(module.TAG);
+        assertThat(module.cancellationSignal.isCanceled()).isTrue();
+        assertThat(module.cancellationSignals).hasSize(2);
+    }
+
+    @Test
+    public void cancelFromListener_doesNotRearm() throws Exception {
+        final AuthenticationSession[] session = new AuthenticationSession[1];
+        session[0] = Reprint.authenticate(new AuthenticationListener() {
+            @Override
+            public void onSuccess(int moduleTag) {
+                session[0].cancel();
+            }
+
+            @Override
+            public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                                  CharSequence errorMessage, int moduleTag, int errorCode) {
+            }
+        }, RestartPredicates.defaultPredicate(), new AuthenticationOptions().continuous(true));
+
+        module.listener.onSuccess(module.TAG);
+
+        assertThat(session[0].isActive()).isFalse();
+        assertThat(module.cancellationSignals).hasSize(1);
+    }
+
+    @Test
+    public void fatalFailure_endsSession() throws Exception {
+        final AuthenticationSession session = authenticateContinuously();
+        module.listener.onSuccess(module.TAG);
+        final CancellationSignal rearmed = module.cancellationSignal;
+
+        module.listener.onFailure(AuthenticationFailureReason.AUTHENTICATION_FAILED, true, "", module.TAG, 5);
+
+        verify(listener).onFailure(eq(AuthenticationFailureReason.AUTHENTICATION_FAILED), eq(true), eq(""), eq(module.TAG), eq(5));
+        assertThat(session.isActive()).isFalse();
+        assertThat(module.cancellationSignal).isSameAs(rearmed);
+    }
+
+    @Test
+    public void restartPredicate_sharedByEverySuccess() throws Exception {
+        Reprint.authenticate(listener, RestartPredicates.restartTimeouts(1),
+                new AuthenticationOptions().continuous(true));
+        assertThat(module.restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, 0)).isTrue();
+
+        module.listener.onSuccess(module.TAG);
+
+        assertThat(module.restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, 0)).isFalse();
+    }
+
+    @Test
+    public void restartPolicy_newPredicateForEachSuccess() throws Exception {
+        final RestartPolicy policy = new RestartPolicy.Builder()
+                .maxRestarts(AuthenticationFailureReason.TIMEOUT, 1)
+                .build();
+        final AuthenticationSession session = Reprint.authenticateWithPolicy(listener, policy,
+                new AuthenticationOptions().continuous(true));
+        assertThat(module.restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, 0)).isTrue();
+        assertThat(module.restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, 1)).isFalse();
+
+        module.listener.onSuccess(module.TAG);
+
+        assertThat(session.isActive()).isTrue();
+        assertThat(module.restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, 0)).isTrue();
+        assertThat(module.restartPredicate.invoke(AuthenticationFailureReason.TIMEOUT, 1)).isFalse();
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ReprintEventListenerTest {
+    private static final AuthenticationListener NO_OP = new AuthenticationListener() {
+        @Override
+        public void onSuccess(int moduleTag) {
+        }
+
+        @Override
+        public void onFailure(AuthenticationFailureReason failureReason, boolean fatal,
+                              CharSequence errorMessage, int moduleTag, int errorCode) {
+        }
+    };
+
+    public TestReprintModule module;
+    public RecordingEventListener events;
+
+    @Before
+    public void setup() {
+        module = new TestReprintModule();
+        Reprint.registerModule(module);
+        events = new RecordingEventListener();
+        Reprint.setEventListener(events);
+    }
+
+    @After
+    public void tearDown() {
+        Reprint.setEventListener(null);
+    }
+
+    @Test
+    public void successfulRequest() throws Exception {
+        Reprint.invalidateCapabilities();
+        final AuthenticationSession session = Reprint.authenticate(NO_OP, RestartPredicates.restartTimeouts(1));
+        module.listener.onFailure(SENSOR_FAILED, false, "", module.TAG, 1);
+        module.restartPredicate.invoke(TIMEOUT, 0);
+        module.listener.onSuccess(module.TAG);
+
+        assertThat(events.names).containsExactly("authenticateStart", "probeStart", "probeEnd", "sensorStart",
+                "firstEvent", "restartDecision true", "terminal null");
+        assertThat(events.sessions).containsOnly(session);
+        assertThat(events.timestamps).isSorted();
+    }
+
+    @Test
+    public void cancelledRequest() throws Exception {
+        final AuthenticationSession session = Reprint.authenticate(NO_OP);
+        session.cancel();
+        module.listener.onFailure(TIMEOUT, true, "", module.TAG, 1);
+
+        assertThat(events.names).containsSequence("cancelRequested", "cancelConfirmed");
+        assertThat(events.names).doesNotContain("terminal TIMEOUT");
+    }
+
+    @Test
+    public void fatalFailure() throws Exception {
+        Reprint.authenticate(NO_OP);
+        module.listener.onFailure(TIMEOUT, true, "", module.TAG, 1);
+        module.listener.onFailure(TIMEOUT, true, "", module.TAG, 1);
+
+        assertThat(events.names).endsWith("firstEvent", "terminal TIMEOUT");
+    }
+
+    @Test
+    public void sessionsKeepTheirListener() throws Exception {
+        Reprint.setEventListener(null);
+        Reprint.authenticate(NO_OP);
+        Reprint.setEventListener(events);
+        module.listener.onSuccess(module.TAG);
+
+        assertThat(events.names).isEmpty();
+    }
+
+    private static class RecordingEventListener extends ReprintEventListener {
+        final List<String> names = new ArrayList<>();
+        final List<Long> timestamps = new ArrayList<>();
+        final List<AuthenticationSession> sessions = new ArrayList<>();
+
+        private void record(String name, AuthenticationSession session, long nanoTime) {
+            names.add(name);
+            timestamps.add(nanoTime);
+            if (session != null) sessions.add(session);
+        }
+
+        @Override
+        public void probeStart(ReprintModule module, long nanoTime) {
+            record("probeStart", null, nanoTime);
+        }
+
+        @Override
+        public void probeEnd(ReprintModule module, boolean hardwarePresent, long nanoTime) {
+            record("probeEnd", null, nanoTime);
+        }
+
+        @Override
+        public void authenticateStart(AuthenticationSession session, long nanoTime) {
+            record("authenticateStart", session, nanoTime);
+        }
+
+        @Override
+        public void sensorStart(AuthenticationSession session, int moduleTag, long nanoTime) {
+            record("sensorStart", session, nanoTime);
+        }
+
+        @Override
+        public void firstEvent(AuthenticationSession session, long nanoTime) {
+            record("firstEvent", session, nanoTime);
+        }
+
+        @Override
+        public void restartDecision(AuthenticationSession session, AuthenticationFailureReason reason,
+                                    int restartCount, boolean restart, long nanoTime) {
+            record("restartDecision " + restart, session, nanoTime);
+        }
+
+        @Override
+        public void cancelRequested(AuthenticationSession session, long nanoTime) {
+            record("cancelRequested", session, nanoTime);
+        }
+
+        @Override
+        public void cancelConfirmed(AuthenticationSession session, long nanoTime) {
+            record("cancelConfirmed", session, nanoTime);
+        }
+
+        @Override
+        public void terminal(AuthenticationSession session, AuthenticationFailureReason failureReason,
+                             int moduleTag, int errorCode, long nanoTime) {
+            record("terminal " + failureReason, session, nanoTime);
+        }
+    }
+}
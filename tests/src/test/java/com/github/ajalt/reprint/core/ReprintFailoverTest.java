@@ -0,0 +1,126 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReprintFailoverTest {
+    public TestReprintModule fallback;
+
+    @Mock
+    public AuthenticationListener listener;
+
+    @Before
+    public void setup() {
+        fallback = new TestReprintModule();
+    }
+
+    @After
+    public void tearDown() {
+        Reprint.cancelAuthentication();
+    }
+
+    /** Register a module with the fallback behind it, like initialize does. */
+    private void registerWithFallback(ReprintModule primary) {
+        Reprint.registerModule(primary);
+        ReprintInternal.INSTANCE.setFallbacks(Arrays.<ReprintModule>asList(primary, fallback));
+    }
+
+    @Test
+    public void moduleFailure_failsOverWithinSession() throws Exception {
+        final FailingModule primary = new FailingModule();
+        registerWithFallback(primary);
+
+        final AuthenticationSession session = Reprint.authenticate(listener);
+
+        assertThat(primary.cancellationSignal.isCanceled()).isTrue();
+        assertThat(fallback.listener).isNotNull();
+        assertThat(session.isActive()).isTrue();
+        verifyZeroInteractions(listener);
+
+        fallback.listener.onSuccess(fallback.TAG);
+        verify(listener).onSuccess(fallback.TAG);
+    }
+
+    @Test
+    public void userFailure_deliveredWithoutFailover() throws Exception {
+        final TestReprintModule primary = new TestReprintModule();
+        registerWithFallback(primary);
+
+        Reprint.authenticate(listener);
+        primary.listener.onFailure(AuthenticationFailureReason.TIMEOUT, true, "", primary.TAG, 3);
+
+        verify(listener).onFailure(eq(AuthenticationFailureReason.TIMEOUT), eq(true), eq(""), eq(primary.TAG), eq(3));
+        assertThat(fallback.listener).isNull();
+    }
+
+    @Test
+    public void sensorFailure_deliveredWithoutFailover() throws Exception {
+        final TestReprintModule primary = new TestReprintModule();
+        registerWithFallback(primary);
+
+        Reprint.authenticate(listener);
+        primary.listener.onFailure(AuthenticationFailureReason.SENSOR_FAILED, true, "", primary.TAG, 2);
+
+        verify(listener).onFailure(eq(AuthenticationFailureReason.SENSOR_FAILED), eq(true), eq(""), eq(primary.TAG), eq(2));
+        assertThat(fallback.listener).isNull();
+    }
+
+    @Test
+    public void registerModule_discardsFallbacks() throws Exception {
+        registerWithFallback(new TestReprintModule());
+        final FailingModule replacement = new FailingModule();
+        Reprint.registerModule(replacement);
+
+        final AuthenticationSession session = Reprint.authenticate(listener);
+
+        verify(listener).onFailure(eq(AuthenticationFailureReason.UNKNOWN), eq(true), eq(""), eq(replacement.TAG), eq(0));
+        assertThat(session.isActive()).isFalse();
+        assertThat(fallback.listener).isNull();
+    }
+
+    @Test
+    public void unhealthyModule_skippedForNewSessions() throws Exception {
+        final FailingModule primary = new FailingModule();
+        registerWithFallback(primary);
+
+        for (int i = 0; i < ModuleHealth.UNHEALTHY_SCORE; i++) {
+            Reprint.authenticate(listener);
+        }
+        assertThat(primary.cancellationSignals).hasSize(ModuleHealth.UNHEALTHY_SCORE);
+
+        Reprint.authenticate(listener);
+        assertThat(primary.cancellationSignals).hasSize(ModuleHealth.UNHEALTHY_SCORE);
+        assertThat(fallback.cancellationSignals).hasSize(ModuleHealth.UNHEALTHY_SCORE + 1);
+
+        // A success makes the module healthy again.
+        ReprintInternal.INSTANCE.health.recordSuccess(primary.TAG);
+        Reprint.authenticate(listener);
+        assertThat(primary.cancellationSignals).hasSize(ModuleHealth.UNHEALTHY_SCORE + 1);
+    }
+
+    /** A module whose sensor fails as soon as it's started. */
+    private static class FailingModule extends TestReprintModule {
+        @Override
+        public void authenticate(CancellationSignal cancellationSignal, AuthenticationListener listener,
+                                 Reprint.RestartPredicate restartPredicate) {
+            super.authenticate(cancellationSignal, listener, restartPredicate);
+            listener.onFailure(AuthenticationFailureReason.UNKNOWN, true, "", TAG, 0);
+        }
+    }
+}
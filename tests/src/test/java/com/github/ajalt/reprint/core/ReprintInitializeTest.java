@@ -0,0 +1,151 @@
+package com.github.ajalt.reprint.core;
+
+import android.content.Context;
+
+import com.github.ajalt.reprint.testing.TestApp;
+import com.github.ajalt.reprint.testing.TestReprintModule;
+import com.github.ajalt.reprint.testing.TestReprintModuleProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApp.class, manifest = Config.NONE)
+public class ReprintInitializeTest {
+    @Before
+    public void setup() throws Exception {
+        // The test app initializes Reprint, which might still be revalidating in the background.
+        awaitBackgroundWork();
+        reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        awaitBackgroundWork();
+        reset();
+    }
+
+    private static void reset() {
+        TestReprintModuleProvider.module = null;
+        ReprintInternal.INSTANCE.module.set(null);
+        Reprint.invalidateCapabilities();
+        RuntimeEnvironment.application.getSharedPreferences(ModuleSelectionCache.PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().clear().commit();
+    }
+
+    /** Wait for the revalidation, which runs on the same thread as prepare, and before it. */
+    private static void awaitBackgroundWork() throws Exception {
+        Reprint.prepare().get(5, TimeUnit.SECONDS);
+    }
+
+    private static ModuleSelectionCache cache() {
+        return ModuleSelectionCache.create(RuntimeEnvironment.application, ReprintInternal.NULL_LOGGER);
+    }
+
+    private static ReprintModule registered() {
+        return ReprintInternal.INSTANCE.module.get();
+    }
+
+    @Test
+    public void withoutCacheEntry_registersSelectionAndCachesIt() throws Exception {
+        final ProvidedModule module = new ProvidedModule(true);
+        module.gate.countDown();
+        TestReprintModuleProvider.module = module;
+
+        Reprint.initialize(RuntimeEnvironment.application);
+        assertThat(registered()).isSameAs(module);
+
+        awaitBackgroundWork();
+        final ModuleSelectionCache.Entry entry = cache().read();
+        assertThat(entry).isNotNull();
+        assertThat(entry.tag).isEqualTo(TestReprintModuleProvider.TAG);
+        assertThat(entry.capabilities).isEqualTo(new ReprintInternal.Capabilities(true, true));
+    }
+
+    @Test
+    public void withCacheEntry_registersCachedModuleWithoutProbing() throws Exception {
+        cache().write(TestReprintModuleProvider.TAG, new ReprintInternal.Capabilities(true, true));
+        final ProvidedModule module = new ProvidedModule(true);
+        TestReprintModuleProvider.module = module;
+
+        Reprint.initialize(RuntimeEnvironment.application);
+        assertThat(registered()).isSameAs(module);
+        assertThat(Reprint.isHardwarePresent()).isTrue();
+        assertThat(Reprint.hasFingerprintRegistered()).isTrue();
+        assertThat(module.hardwarePresentCalls).isEqualTo(0);
+
+        module.gate.countDown();
+        awaitBackgroundWork();
+        assertThat(registered()).isSameAs(module);
+    }
+
+    @Test
+    public void staleCacheEntry_replacedByRevalidation() throws Exception {
+        cache().write(TestReprintModuleProvider.TAG, new ReprintInternal.Capabilities(true, true));
+        final ProvidedModule module = new ProvidedModule(false);
+        TestReprintModuleProvider.module = module;
+
+        Reprint.initialize(RuntimeEnvironment.application);
+        assertThat(registered()).isSameAs(module);
+
+        module.gate.countDown();
+        awaitBackgroundWork();
+        // Robolectric doesn't have a fingerprint sensor, so nothing else is selected either.
+        assertThat(registered()).isNull();
+        assertThat(cache().read().tag).isEqualTo(ModuleSelectionCache.NO_MODULE);
+    }
+
+    @Test
+    public void revalidation_keepsModuleRegisteredByApp() throws Exception {
+        cache().write(TestReprintModuleProvider.TAG, new ReprintInternal.Capabilities(true, true));
+        final ProvidedModule module = new ProvidedModule(false);
+        TestReprintModuleProvider.module = module;
+
+        Reprint.initialize(RuntimeEnvironment.application);
+        final TestReprintModule appModule = new TestReprintModule();
+        Reprint.registerModule(appModule);
+
+        module.gate.countDown();
+        awaitBackgroundWork();
+        assertThat(registered()).isSameAs(appModule);
+    }
+
+    /**
+     * The module created by the test provider. Its hardware probe waits for {@link #gate}, so tests
+     * can tell whether it was probed, and act before the background revalidation finishes.
+     */
+    private static class ProvidedModule extends TestReprintModule {
+        final CountDownLatch gate = new CountDownLatch(1);
+        private final boolean hardwarePresent;
+
+        ProvidedModule(boolean hardwarePresent) {
+            this.hardwarePresent = hardwarePresent;
+        }
+
+        @Override
+        public boolean isHardwarePresent() {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.isHardwarePresent();
+            return hardwarePresent;
+        }
+
+        @Override
+        public int tag() {
+            return TestReprintModuleProvider.TAG;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.HARDWARE_UNAVAILABLE;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.LOCKED_OUT;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReprintMetricsTest {
+    public TestReprintModule module;
+
+    @Mock
+    public AuthenticationListener listener;
+
+    @Before
+    public void setup() {
+        module = new TestReprintModule();
+        Reprint.registerModule(module);
+    }
+
+    private ReprintMetrics.Snapshot snapshot() {
+        for (ReprintMetrics.Snapshot snapshot : Reprint.metrics().snapshot()) {
+            if (snapshot.moduleTag == module.TAG) return snapshot;
+        }
+        throw new AssertionError("No metrics for module " + module.TAG);
+    }
+
+    @Test
+    public void outcomesAreCounted() throws Exception {
+        Reprint.authenticate(listener, RestartPredicates.restartTimeouts(2));
+        module.restartPredicate.invoke(TIMEOUT, 0);
+        module.restartPredicate.invoke(TIMEOUT, 1);
+        module.listener.onFailure(SENSOR_FAILED, false, "", module.TAG, 1);
+        module.listener.onFailure(SENSOR_FAILED, false, "", module.TAG, 1);
+        module.listener.onSuccess(module.TAG);
+
+        Reprint.authenticate(listener);
+        module.listener.onFailure(HARDWARE_UNAVAILABLE, true, "", module.TAG, 7);
+
+        Reprint.authenticate(listener).cancel();
+
+        final ReprintMetrics.Snapshot snapshot = snapshot();
+        assertThat(snapshot.successes).isEqualTo(1);
+        assertThat(snapshot.failures(HARDWARE_UNAVAILABLE)).isEqualTo(1);
+        assertThat(snapshot.failures(TIMEOUT)).isEqualTo(0);
+        assertThat(snapshot.cancellations).isEqualTo(1);
+        assertThat(snapshot.timeToSuccessMicros.total()).isEqualTo(1);
+        assertThat(snapshot.timeToFirstHelpMicros.total()).isEqualTo(1);
+        assertThat(snapshot.restartsPerSession.total()).isEqualTo(3);
+        // The successful session restarted twice, which lands in the [2, 4) bucket.
+        assertThat(snapshot.restartsPerSession.count(2)).isEqualTo(1);
+        assertThat(snapshot.restartsPerSession.count(0)).isEqualTo(2);
+    }
+
+    @Test
+    public void droppedEventsAreNotCounted() throws Exception {
+        Reprint.authenticate(listener);
+        module.listener.onSuccess(module.TAG);
+        module.listener.onSuccess(module.TAG);
+        module.listener.onFailure(LOCKED_OUT, true, "", module.TAG, 7);
+
+        final ReprintMetrics.Snapshot snapshot = snapshot();
+        assertThat(snapshot.successes).isEqualTo(1);
+        assertThat(snapshot.failures(LOCKED_OUT)).isEqualTo(0);
+    }
+
+    @Test
+    public void histogramPercentiles() throws Exception {
+        final ReprintMetrics metrics = new ReprintMetrics();
+        for (int i = 0; i < 90; i++) {
+            metrics.recordSuccess(1, 3000000, 0); // 3ms, in the [2048, 4096) bucket
+        }
+        for (int i = 0; i < 10; i++) {
+            metrics.recordSuccess(1, 1000000000, 0); // 1s, in the [524288, 1048576) bucket
+        }
+
+        final ReprintMetrics.Histogram histogram = metrics.snapshot().get(0).timeToSuccessMicros;
+        assertThat(histogram.total()).isEqualTo(100);
+        assertThat(histogram.percentile(50)).isEqualTo(2048);
+        assertThat(histogram.percentile(90)).isEqualTo(2048);
+        assertThat(histogram.percentile(99)).isEqualTo(524288);
+    }
+}
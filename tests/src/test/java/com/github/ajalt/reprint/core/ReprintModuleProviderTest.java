@@ -0,0 +1,57 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModuleProvider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ReprintModuleProviderTest {
+    /**
+     * Discovery runs on every cold start, so it has to stay far below this. The limit is loose
+     * enough for a slow CI machine, and still catches a lookup that scans the classpath.
+     */
+    private static final long DISCOVERY_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    @After
+    public void tearDown() {
+        Reprint.setEventListener(null);
+    }
+
+    @Test
+    public void loadModuleProviders_findsServiceEntries() throws Exception {
+        final List<ReprintModuleProvider> providers = ReprintInternal.INSTANCE.loadModuleProviders(ReprintInternal.NULL_LOGGER);
+
+        assertThat(providers).hasSize(1);
+        assertThat(providers.get(0)).isInstanceOf(TestReprintModuleProvider.class);
+        assertThat(providers.get(0).tag()).isEqualTo(TestReprintModuleProvider.TAG);
+    }
+
+    @Test
+    public void loadModuleProviders_reportsDiscoveryTime() throws Exception {
+        final long[] times = new long[2];
+        final int[] count = {-1};
+        Reprint.setEventListener(new ReprintEventListener() {
+            @Override
+            public void discoveryStart(long nanoTime) {
+                times[0] = nanoTime;
+            }
+
+            @Override
+            public void discoveryEnd(int providerCount, long nanoTime) {
+                times[1] = nanoTime;
+                count[0] = providerCount;
+            }
+        });
+
+        ReprintInternal.INSTANCE.loadModuleProviders(ReprintInternal.NULL_LOGGER);
+
+        assertThat(count[0]).isEqualTo(1);
+        assertThat(times[0]).isNotZero();
+        assertThat(times[1] - times[0]).isBetween(0L, DISCOVERY_BUDGET_NANOS);
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReprintPrepareTest {
+    public TestReprintModule module;
+
+    @Mock
+    public AuthenticationListener listener;
+
+    @Before
+    public void setup() {
+        module = new TestReprintModule();
+        Reprint.registerModule(module);
+        Reprint.invalidateCapabilities();
+    }
+
+    @After
+    public void tearDown() {
+        Reprint.setEventListener(null);
+        Reprint.cancelAuthentication();
+    }
+
+    private ReprintMetrics.Snapshot snapshot() {
+        for (ReprintMetrics.Snapshot snapshot : Reprint.metrics().snapshot()) {
+            if (snapshot.moduleTag == module.TAG) return snapshot;
+        }
+        throw new AssertionError("No metrics for module " + module.TAG);
+    }
+
+    @Test
+    public void prepare_probesBeforeAuthenticate() throws Exception {
+        final boolean[] ready = new boolean[1];
+        Reprint.setEventListener(new ReprintEventListener() {
+            @Override
+            public void prepareEnd(boolean r, long nanoTime) {
+                ready[0] = r;
+            }
+        });
+
+        Reprint.prepare().get(1, TimeUnit.SECONDS);
+        assertThat(ready[0]).isTrue();
+        final int hardwareCalls = module.hardwarePresentCalls;
+        final int registeredCalls = module.fingerprintRegisteredCalls;
+
+        Reprint.authenticate(listener);
+        assertThat(module.hardwarePresentCalls).isEqualTo(hardwareCalls);
+        assertThat(module.fingerprintRegisteredCalls).isEqualTo(registeredCalls);
+    }
+
+    @Test
+    public void preparedObjects_usedByNextRequestOnly() throws Exception {
+        Reprint.prepare().get(1, TimeUnit.SECONDS);
+        Reprint.authenticate(listener);
+        final CancellationSignal prepared = module.cancellationSignal;
+        Reprint.authenticate(listener);
+
+        assertThat(module.cancellationSignal).isNotSameAs(prepared);
+        assertThat(prepared.isCanceled()).isTrue();
+    }
+
+    @Test
+    public void startLatency_splitOnWhetherRequestProbed() throws Exception {
+        Reprint.authenticate(listener);
+        Reprint.authenticate(listener);
+
+        assertThat(snapshot().coldStartLatencyMicros.total()).isEqualTo(1);
+        assertThat(snapshot().warmStartLatencyMicros.total()).isEqualTo(1);
+    }
+
+    @Test
+    public void startLatency_preparedSignalAloneIsCold() throws Exception {
+        Reprint.prepare().get(1, TimeUnit.SECONDS);
+        Reprint.invalidateCapabilities();
+        Reprint.authenticate(listener);
+
+        assertThat(snapshot().coldStartLatencyMicros.total()).isEqualTo(1);
+        assertThat(snapshot().warmStartLatencyMicros.total()).isEqualTo(0);
+    }
+
+    @Test
+    public void startLatency_afterPrepareIsWarm() throws Exception {
+        Reprint.prepare().get(1, TimeUnit.SECONDS);
+        Reprint.authenticate(listener);
+
+        assertThat(snapshot().coldStartLatencyMicros.total()).isEqualTo(0);
+        assertThat(snapshot().warmStartLatencyMicros.total()).isEqualTo(1);
+    }
+}
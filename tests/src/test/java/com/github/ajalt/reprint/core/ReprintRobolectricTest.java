@@ -7,6 +7,17 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(application = TestApp.class, manifest = Config.NONE)
@@ -15,4 +26,19 @@ public class ReprintRobolectricTest {
     public void reprint_initialize() {
         Reprint.initialize(RuntimeEnvironment.application);
     }
+
+    @Test
+    public void reprint_initializeAsync_startsQueuedRequests() throws Exception {
+        final AuthenticationListener listener = mock(AuthenticationListener.class);
+        final Future<Void> ready = Reprint.initializeAsync(RuntimeEnvironment.application);
+        Reprint.authenticate(listener);
+
+        ready.get();
+        assertThat(ready.isDone()).isTrue();
+        ShadowLooper.runUiThreadTasks();
+
+        // Robolectric doesn't have a fingerprint sensor
+        verify(listener).onFailure(eq(AuthenticationFailureReason.NO_HARDWARE), anyBoolean(),
+                any(CharSequence.class), anyInt(), anyInt());
+    }
 }
@@ -9,10 +9,14 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import androidx.core.os.CancellationSignal;
+
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 @RunWith(MockitoJUnitRunner.class)
@@ -22,6 +26,11 @@ public class ReprintTest {
     @Mock
     public AuthenticationListener listener;
 
+    @Mock
+    public AuthenticationListener otherListener;
+
+    public AuthenticationSession session;
+
     @Before
     public void setup() {
         module = new TestReprintModule();
@@ -29,7 +38,7 @@ public class ReprintTest {
         module.cancellationSignal = null;
         Reprint.registerModule(module);
 
-        Reprint.authenticate(listener);
+        session = Reprint.authenticate(listener);
         assertThat(module.listener).isNotNull();
     }
 
@@ -46,4 +55,104 @@ public class ReprintTest {
         module.listener.onFailure(AuthenticationFailureReason.AUTHENTICATION_FAILED, false, "", module.TAG, 0);
         verify(listener).onFailure(eq(AuthenticationFailureReason.AUTHENTICATION_FAILED), eq(false), anyString(), anyInt(), anyInt());
     }
+
+    @Test
+    public void capabilitiesAreCached() throws Exception {
+        final int hardwareCalls = module.hardwarePresentCalls;
+        final int registeredCalls = module.fingerprintRegisteredCalls;
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(Reprint.isHardwarePresent()).isTrue();
+            assertThat(Reprint.hasFingerprintRegistered()).isTrue();
+        }
+        Reprint.authenticate(listener);
+
+        assertThat(module.hardwarePresentCalls).isEqualTo(hardwareCalls);
+        assertThat(module.fingerprintRegisteredCalls).isEqualTo(registeredCalls);
+    }
+
+    @Test
+    public void invalidateCapabilities_probesAgain() throws Exception {
+        final int hardwareCalls = module.hardwarePresentCalls;
+        final int registeredCalls = module.fingerprintRegisteredCalls;
+
+        Reprint.invalidateCapabilities();
+        assertThat(Reprint.hasFingerprintRegistered()).isTrue();
+
+        assertThat(module.hardwarePresentCalls).isEqualTo(hardwareCalls + 1);
+        assertThat(module.fingerprintRegisteredCalls).isEqualTo(registeredCalls + 1);
+    }
+
+    @Test
+    public void newRequest_cancelsPreviousSession() throws Exception {
+        final CancellationSignal firstSignal = module.cancellationSignal;
+        final AuthenticationListener firstListener = module.listener;
+
+        final AuthenticationSession second = Reprint.authenticate(otherListener);
+
+        assertThat(firstSignal.isCanceled()).isTrue();
+        assertThat(session.isActive()).isFalse();
+        assertThat(second.isActive()).isTrue();
+
+        firstListener.onSuccess(module.TAG);
+        verify(listener, never()).onSuccess(anyInt());
+    }
+
+    @Test
+    public void sessionCancel_leavesNewerSessionRunning() throws Exception {
+        final AuthenticationSession second = Reprint.authenticate(otherListener);
+        session.cancel();
+
+        assertThat(second.isActive()).isTrue();
+        assertThat(module.cancellationSignal.isCanceled()).isFalse();
+
+        module.listener.onSuccess(module.TAG);
+        verify(otherListener).onSuccess(module.TAG);
+    }
+
+    @Test
+    public void terminalEvent_endsSession() throws Exception {
+        module.listener.onFailure(AuthenticationFailureReason.LOCKED_OUT, true, "", module.TAG, 0);
+        assertThat(session.isActive()).isFalse();
+
+        module.listener.onSuccess(module.TAG);
+        verify(listener, never()).onSuccess(anyInt());
+    }
+
+    @Test
+    public void lockout_failsLaterRequestsWithoutStartingSensor() throws Exception {
+        assertThat(Reprint.lockoutRemainingMillis()).isEqualTo(0);
+        module.listener.onFailure(AuthenticationFailureReason.LOCKED_OUT, true, "", module.TAG, TestReprintModule.LOCKOUT_CODE);
+
+        assertThat(Reprint.lockoutRemainingMillis()).isBetween(1L, ReprintInternal.LOCKOUT_DURATION_MILLIS);
+        final AuthenticationSession second = Reprint.authenticate(otherListener);
+
+        verify(otherListener).onFailure(eq(AuthenticationFailureReason.LOCKED_OUT), eq(true),
+                (CharSequence) any(), eq(module.TAG), eq(TestReprintModule.LOCKOUT_CODE));
+        assertThat(second.isActive()).isFalse();
+        assertThat(module.cancellationSignals).hasSize(1);
+    }
+
+    @Test
+    public void lockedOutWithOtherCode_doesNotStartLockout() throws Exception {
+        module.listener.onFailure(AuthenticationFailureReason.LOCKED_OUT, true, "", module.TAG, 0);
+
+        assertThat(Reprint.lockoutRemainingMillis()).isEqualTo(0);
+        Reprint.authenticate(otherListener);
+        assertThat(module.cancellationSignals).hasSize(2);
+        verifyZeroInteractions(otherListener);
+    }
+
+    @Test
+    public void lockout_doesNotApplyToOtherModules() throws Exception {
+        module.listener.onFailure(AuthenticationFailureReason.LOCKED_OUT, true, "", module.TAG, TestReprintModule.LOCKOUT_CODE);
+
+        final TestReprintModule other = new TestReprintModule();
+        Reprint.registerModule(other);
+        assertThat(Reprint.lockoutRemainingMillis()).isEqualTo(0);
+
+        Reprint.authenticate(otherListener);
+        assertThat(other.listener).isNotNull();
+        verifyZeroInteractions(otherListener);
+    }
 }
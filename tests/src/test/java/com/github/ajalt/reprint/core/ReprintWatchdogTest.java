@@ -0,0 +1,180 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.testing.TestReprintModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReprintWatchdogTest {
+    public TestReprintModule module;
+
+    @Mock
+    public AuthenticationListener listener;
+
+    private Executor previousExecutor;
+
+    @Before
+    public void setup() {
+        previousExecutor = ReprintInternal.INSTANCE.mainThreadExecutor;
+        // Run the watchdog checks on the scheduler thread, since there's no main looper.
+        ReprintInternal.INSTANCE.mainThreadExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        module = new TestReprintModule();
+        Reprint.registerModule(module);
+    }
+
+    @After
+    public void tearDown() {
+        Reprint.cancelAuthentication();
+        ReprintInternal.INSTANCE.mainThreadExecutor = previousExecutor;
+    }
+
+    @Test
+    public void deadline_endsSession() throws Exception {
+        final AuthenticationSession session = Reprint.authenticate(listener, RestartPredicates.defaultPredicate(),
+                new AuthenticationOptions().deadline(50, TimeUnit.MILLISECONDS));
+
+        verify(listener, timeout(2000)).onFailure(eq(AuthenticationFailureReason.TIMEOUT), eq(true),
+                (CharSequence) any(), eq(module.TAG), eq(AuthenticationOptions.WATCHDOG_TIMEOUT));
+        assertThat(session.isActive()).isFalse();
+        assertThat(awaitCanceled(module.cancellationSignal)).isTrue();
+    }
+
+    @Test
+    public void deadline_notTriggeredAfterSuccess() throws Exception {
+        Reprint.authenticate(listener, RestartPredicates.defaultPredicate(),
+                new AuthenticationOptions().deadline(50, TimeUnit.MILLISECONDS));
+        module.listener.onSuccess(module.TAG);
+
+        verify(listener, after(200).never()).onFailure(any(AuthenticationFailureReason.class), eq(true),
+                (CharSequence) any(), anyInt(), anyInt());
+        verify(listener).onSuccess(module.TAG);
+    }
+
+    @Test
+    public void idleTimeout_recyclesSensorWhilePredicateAllows() throws Exception {
+        final AuthenticationSession session = Reprint.authenticate(listener, RestartPredicates.restartTimeouts(1),
+                new AuthenticationOptions().idleTimeout(50, TimeUnit.MILLISECONDS));
+
+        verify(listener, timeout(2000)).onFailure(eq(AuthenticationFailureReason.TIMEOUT), eq(true),
+                (CharSequence) any(), eq(module.TAG), eq(AuthenticationOptions.WATCHDOG_TIMEOUT));
+
+        // Started once, recycled once, then ended when the predicate refused a second recycle.
+        assertThat(module.cancellationSignals).hasSize(2);
+        assertThat(module.cancellationSignals.get(0).isCanceled()).isTrue();
+        assertThat(awaitCanceled(module.cancellationSignals.get(1))).isTrue();
+        assertThat(session.isActive()).isFalse();
+    }
+
+    @Test
+    public void idleTimeout_recycledSensorStillDeliversEvents() throws Exception {
+        final AuthenticationSession session = Reprint.authenticate(listener, RestartPredicates.restartTimeouts(1),
+                new AuthenticationOptions().idleTimeout(50, TimeUnit.MILLISECONDS));
+
+        final long start = System.nanoTime();
+        while (module.cancellationSignals.size() < 2 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2)) {
+            Thread.sleep(5);
+        }
+        assertThat(module.cancellationSignals).hasSize(2);
+        module.listener.onSuccess(module.TAG);
+
+        verify(listener).onSuccess(module.TAG);
+        verify(listener, never()).onFailure(any(AuthenticationFailureReason.class), eq(true),
+                (CharSequence) any(), anyInt(), anyInt());
+        assertThat(session.isActive()).isFalse();
+    }
+
+    @Test
+    public void idleTimeout_countsCoalescedRepeats() throws Exception {
+        final AuthenticationSession session = Reprint.authenticate(listener, RestartPredicates.neverRestart(),
+                new AuthenticationOptions().idleTimeout(100, TimeUnit.MILLISECONDS).coalesceHelp(10, TimeUnit.SECONDS));
+
+        // Every repeat after the first is held back, but the sensor is still sending them.
+        for (int i = 0; i < 30; i++) {
+            module.listener.onFailure(AuthenticationFailureReason.SENSOR_FAILED, false, "", module.TAG, 3);
+            Thread.sleep(10);
+        }
+
+        assertThat(session.isActive()).isTrue();
+        verify(listener).onFailure(AuthenticationFailureReason.SENSOR_FAILED, false, "", module.TAG, 3);
+        verify(listener, never()).onFailure(any(AuthenticationFailureReason.class), eq(true),
+                (CharSequence) any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void deadline_enforcedWhileBackgroundWorkIsBlocked() throws Exception {
+        final CountDownLatch probe = new CountDownLatch(1);
+        final BlockingModule blocking = new BlockingModule();
+        Reprint.registerModule(blocking);
+        final AuthenticationSession session = Reprint.authenticate(listener, RestartPredicates.defaultPredicate(),
+                new AuthenticationOptions().deadline(50, TimeUnit.MILLISECONDS));
+
+        // Keep the background thread busy with a probe that doesn't return until released.
+        blocking.gate = probe;
+        Reprint.invalidateCapabilities();
+        final Future<Void> prepared = Reprint.prepare();
+        try {
+            verify(listener, timeout(2000)).onFailure(eq(AuthenticationFailureReason.TIMEOUT), eq(true),
+                    (CharSequence) any(), eq(blocking.TAG), eq(AuthenticationOptions.WATCHDOG_TIMEOUT));
+            assertThat(session.isActive()).isFalse();
+        } finally {
+            probe.countDown();
+        }
+        prepared.get(1, TimeUnit.SECONDS);
+    }
+
+    /** A module whose hardware probe waits for {@link #gate}, if it's set. */
+    private static class BlockingModule extends TestReprintModule {
+        volatile CountDownLatch gate;
+
+        @Override
+        public boolean isHardwarePresent() {
+            final CountDownLatch g = gate;
+            if (g != null) {
+                try {
+                    g.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.isHardwarePresent();
+        }
+    }
+
+    /**
+     * The watchdog stops the sensor on its own thread after the listener is told about the timeout,
+     * so wait for it rather than racing it.
+     */
+    private static boolean awaitCanceled(CancellationSignal signal) throws InterruptedException {
+        final long start = System.nanoTime();
+        while (!signal.isCanceled() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2)) {
+            Thread.sleep(5);
+        }
+        return signal.isCanceled();
+    }
+}
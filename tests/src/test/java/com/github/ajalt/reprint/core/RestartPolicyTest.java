@@ -0,0 +1,115 @@
+package com.github.ajalt.reprint.core;
+
+import com.github.ajalt.reprint.engine.RestartBackoff;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.SENSOR_FAILED;
+import static com.github.ajalt.reprint.core.AuthenticationFailureReason.TIMEOUT;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RestartPolicyTest {
+    @Test
+    public void maxRestarts_countedPerReason() throws Exception {
+        final Reprint.RestartPredicate predicate = new RestartPolicy.Builder()
+                .maxRestarts(TIMEOUT, 1)
+                .maxRestarts(SENSOR_FAILED, 2)
+                .build()
+                .newPredicate();
+
+        assertTrue(predicate.invoke(TIMEOUT, 0));
+        assertTrue(predicate.invoke(SENSOR_FAILED, 1));
+        assertFalse(predicate.invoke(TIMEOUT, 2));
+        assertTrue(predicate.invoke(SENSOR_FAILED, 2));
+        assertFalse(predicate.invoke(SENSOR_FAILED, 3));
+    }
+
+    @Test
+    public void newPredicate_startsWithFreshBudget() throws Exception {
+        final RestartPolicy policy = new RestartPolicy.Builder().maxRestarts(TIMEOUT, 1).build();
+        final Reprint.RestartPredicate first = policy.newPredicate();
+        assertTrue(first.invoke(TIMEOUT, 0));
+        assertFalse(first.invoke(TIMEOUT, 1));
+
+        assertTrue(policy.newPredicate().invoke(TIMEOUT, 0));
+    }
+
+    @Test
+    public void maxDuration_stopsRestarting() throws Exception {
+        final Reprint.RestartPredicate predicate = new RestartPolicy.Builder()
+                .maxDuration(20, TimeUnit.MILLISECONDS)
+                .build()
+                .newPredicate();
+        assertTrue(predicate.invoke(TIMEOUT, 0));
+
+        Thread.sleep(40);
+        assertFalse(predicate.invoke(TIMEOUT, 1));
+    }
+
+    @Test
+    public void exponentialBackoff_doublesPerReasonUpToMax() throws Exception {
+        final Reprint.RestartPredicate predicate = new RestartPolicy.Builder()
+                .exponentialBackoff(100, 300, TimeUnit.MILLISECONDS)
+                .build()
+                .newPredicate();
+        final RestartBackoff backoff = (RestartBackoff) predicate;
+
+        assertThat(delayAfterRestart(predicate, backoff, TIMEOUT)).isEqualTo(100);
+        assertThat(delayAfterRestart(predicate, backoff, TIMEOUT)).isEqualTo(200);
+        assertThat(delayAfterRestart(predicate, backoff, SENSOR_FAILED)).isEqualTo(100);
+        assertThat(delayAfterRestart(predicate, backoff, TIMEOUT)).isEqualTo(300);
+        assertThat(delayAfterRestart(predicate, backoff, TIMEOUT)).isEqualTo(300);
+    }
+
+    @Test
+    public void jitter_onlyShortensDelay() throws Exception {
+        final Reprint.RestartPredicate predicate = new RestartPolicy.Builder()
+                .fixedBackoff(1000, TimeUnit.MILLISECONDS)
+                .jitter(0.5)
+                .build()
+                .newPredicate();
+        final RestartBackoff backoff = (RestartBackoff) predicate;
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(delayAfterRestart(predicate, backoff, TIMEOUT)).isBetween(500L, 1000L);
+        }
+    }
+
+    @Test
+    public void predicate_threadSafeBudget() throws Exception {
+        final Reprint.RestartPredicate predicate = new RestartPolicy.Builder()
+                .maxRestarts(TIMEOUT, 1000)
+                .build()
+                .newPredicate();
+        final int[] allowed = new int[4];
+        final Thread[] threads = new Thread[allowed.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        if (predicate.invoke(TIMEOUT, i)) allowed[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += allowed[t];
+        }
+        assertThat(total).isEqualTo(1000);
+    }
+
+    private static long delayAfterRestart(Reprint.RestartPredicate predicate, RestartBackoff backoff,
+                                          AuthenticationFailureReason reason) {
+        assertTrue(predicate.invoke(reason, 0));
+        return backoff.restartDelayMillis(reason, 0);
+    }
+}
@@ -4,20 +4,35 @@ import android.content.Context;
 import android.hardware.fingerprint.FingerprintManager;
 import android.os.Build;
 
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.ErrorCodeTable;
 import com.github.ajalt.reprint.core.Reprint;
+import com.github.ajalt.reprint.core.RestartPredicates;
+import com.github.ajalt.reprint.engine.RearmCondition;
 import com.github.ajalt.reprint.module.marshmallow.MarshmallowReprintModule;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.HashSet;
+
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
+import androidx.core.os.CancellationSignal;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RequiresApi(api = Build.VERSION_CODES.M)
@@ -35,9 +50,14 @@ public class MarshmallowReprintModuleTest {
         }
     };
 
+    private static final int VENDOR_CODE = 1005;
+    /** The entry for the vendor code before the test, restored afterwards. */
+    private final ErrorCodeTable.Entry vendorEntry = MarshmallowReprintModule.ERROR_CODES.get(VENDOR_CODE);
+
     public MarshmallowReprintModule module;
     @Mock public Context context;
     @Mock public FingerprintManager fingerprintManager;
+    @Mock public AuthenticationListener listener;
 
     @Before
     public void setup() {
@@ -45,6 +65,11 @@ public class MarshmallowReprintModuleTest {
         module = new MarshmallowReprintModule(context, LOGGER);
     }
 
+    @After
+    public void tearDown() {
+        MarshmallowReprintModule.ERROR_CODES.put(VENDOR_CODE, vendorEntry);
+    }
+
     private void setupValidManager() {
         setupManager(this.fingerprintManager);
         when(fingerprintManager.isHardwareDetected()).thenReturn(true);
@@ -99,4 +124,117 @@ public class MarshmallowReprintModuleTest {
         assertThat(module.isHardwarePresent()).isTrue();
         assertThat(module.hasFingerprintRegistered()).isTrue();
     }
+
+    @Test
+    public void fingerprintManager_lookedUpOnce() throws Exception {
+        setupValidManager();
+        assertThat(module.isHardwarePresent()).isTrue();
+        assertThat(module.hasFingerprintRegistered()).isTrue();
+        assertThat(module.isHardwarePresent()).isTrue();
+        verify(context, times(1)).getSystemService(any(Class.class));
+    }
+
+    @Test
+    public void fingerprintManager_failedLookupRemembered() throws Exception {
+        when(context.getSystemService(any(Class.class))).thenThrow(new NoClassDefFoundError());
+        assertThat(module.isHardwarePresent()).isFalse();
+        assertThat(module.hasFingerprintRegistered()).isFalse();
+        assertThat(module.isHardwarePresent()).isFalse();
+        verify(context, times(1)).getSystemService(any(Class.class));
+    }
+
+    @Test
+    public void fingerprintManager_hardwareDetectionFailureRemembered() throws Exception {
+        setupManager(fingerprintManager);
+        when(fingerprintManager.isHardwareDetected()).thenThrow(new SecurityException());
+        assertThat(module.isHardwarePresent()).isFalse();
+        assertThat(module.isHardwarePresent()).isFalse();
+        verify(fingerprintManager, times(1)).isHardwareDetected();
+    }
+
+    @Test
+    public void authenticate_timeoutRestartsReuseCallback() throws Exception {
+        final int restarts = 50;
+        setupValidManager();
+        module.authenticate(new CancellationSignal(), listener, RestartPredicates.restartTimeouts(restarts));
+
+        final ArgumentCaptor<FingerprintManager.AuthenticationCallback> callbacks =
+                ArgumentCaptor.forClass(FingerprintManager.AuthenticationCallback.class);
+        for (int i = 0; i <= restarts; i++) {
+            verify(fingerprintManager, times(i + 1)).authenticate(
+                    (FingerprintManager.CryptoObject) isNull(), (android.os.CancellationSignal) any(),
+                    anyInt(), callbacks.capture(), (android.os.Handler) isNull());
+            callbacks.getValue().onAuthenticationError(MarshmallowReprintModule.FINGERPRINT_ERROR_TIMEOUT, "timeout");
+        }
+
+        assertThat(new HashSet<>(callbacks.getAllValues())).hasSize(1);
+        verify(context, times(1)).getSystemService(any(Class.class));
+        verify(listener).onFailure(eq(AuthenticationFailureReason.TIMEOUT), eq(true), any(CharSequence.class),
+                eq(MarshmallowReprintModule.TAG), eq(MarshmallowReprintModule.FINGERPRINT_ERROR_TIMEOUT));
+    }
+
+    @Test
+    public void authenticate_rearmAfterSuccessReusesCallback() throws Exception {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        setupValidManager();
+        module.authenticate(cancellationSignal, listener, new RearmingPredicate());
+
+        final ArgumentCaptor<FingerprintManager.AuthenticationCallback> callbacks =
+                ArgumentCaptor.forClass(FingerprintManager.AuthenticationCallback.class);
+        for (int i = 0; i < 3; i++) {
+            verify(fingerprintManager, times(i + 1)).authenticate(
+                    (FingerprintManager.CryptoObject) isNull(), (android.os.CancellationSignal) any(),
+                    anyInt(), callbacks.capture(), (android.os.Handler) isNull());
+            callbacks.getValue().onAuthenticationSucceeded(null);
+        }
+
+        assertThat(new HashSet<>(callbacks.getAllValues())).hasSize(1);
+        verify(listener, times(3)).onSuccess(MarshmallowReprintModule.TAG);
+        assertThat(cancellationSignal.isCanceled()).isFalse();
+
+        // Once the request is cancelled, a late success isn't followed by another authenticate call.
+        cancellationSignal.cancel();
+        callbacks.getValue().onAuthenticationSucceeded(null);
+        verify(fingerprintManager, times(4)).authenticate(
+                (FingerprintManager.CryptoObject) isNull(), (android.os.CancellationSignal) any(),
+                anyInt(), any(FingerprintManager.AuthenticationCallback.class), (android.os.Handler) isNull());
+    }
+
+    @Test
+    public void authenticate_registeredVendorErrorCode() throws Exception {
+        MarshmallowReprintModule.ERROR_CODES.put(VENDOR_CODE, new ErrorCodeTable.Entry(
+                AuthenticationFailureReason.HARDWARE_UNAVAILABLE, true, true, ErrorCodeTable.NO_MESSAGE));
+        setupValidManager();
+        module.authenticate(new CancellationSignal(), listener, RestartPredicates.neverRestart());
+
+        final ArgumentCaptor<FingerprintManager.AuthenticationCallback> callback =
+                ArgumentCaptor.forClass(FingerprintManager.AuthenticationCallback.class);
+        verify(fingerprintManager).authenticate(
+                (FingerprintManager.CryptoObject) isNull(), (android.os.CancellationSignal) any(),
+                anyInt(), callback.capture(), (android.os.Handler) isNull());
+        callback.getValue().onAuthenticationError(VENDOR_CODE, "Sensor is resetting");
+
+        verify(listener).onFailure(AuthenticationFailureReason.HARDWARE_UNAVAILABLE, true, "Sensor is resetting",
+                MarshmallowReprintModule.TAG, VENDOR_CODE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void errorCodes_rejectNonFatalEntries() throws Exception {
+        // The system has stopped the sensor by the time it reports an error code.
+        MarshmallowReprintModule.ERROR_CODES.put(VENDOR_CODE, new ErrorCodeTable.Entry(
+                AuthenticationFailureReason.SENSOR_FAILED, false, false, ErrorCodeTable.NO_MESSAGE));
+    }
+
+    /** Never restarts after a failure, and keeps the sensor armed after every success. */
+    private static class RearmingPredicate implements Reprint.RestartPredicate, RearmCondition {
+        @Override
+        public boolean invoke(AuthenticationFailureReason reason, int restartCount) {
+            return false;
+        }
+
+        @Override
+        public boolean rearmAfterSuccess() {
+            return true;
+        }
+    }
 }
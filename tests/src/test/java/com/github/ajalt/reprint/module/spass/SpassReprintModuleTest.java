@@ -0,0 +1,99 @@
+package com.github.ajalt.reprint.module.spass;
+
+import com.github.ajalt.reprint.core.AuthenticationFailureReason;
+import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.Reprint;
+import com.github.ajalt.reprint.core.RestartPredicates;
+import com.github.ajalt.reprint.testing.TestApp;
+import com.samsung.android.sdk.pass.Spass;
+import com.samsung.android.sdk.pass.SpassFingerprint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+
+import androidx.core.os.CancellationSignal;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApp.class, manifest = Config.NONE)
+public class SpassReprintModuleTest {
+    private static final Reprint.Logger LOGGER = new Reprint.Logger() {
+        public void log(String message) {}
+
+        public void logException(Throwable throwable, String message) {}
+    };
+
+    public Spass spass;
+    public SpassFingerprint spassFingerprint;
+    public AuthenticationListener listener;
+
+    @Before
+    public void setup() {
+        spass = mock(Spass.class);
+        spassFingerprint = mock(SpassFingerprint.class);
+        listener = mock(AuthenticationListener.class);
+    }
+
+    private SpassReprintModule createModule() {
+        return new SpassReprintModule(RuntimeEnvironment.application, LOGGER, spass, spassFingerprint);
+    }
+
+    @Test
+    public void initializeFailure_skipsFeatureChecks() throws Exception {
+        doThrow(new IllegalStateException()).when(spass).initialize(RuntimeEnvironment.application);
+        final SpassReprintModule module = createModule();
+
+        assertThat(module.isHardwarePresent()).isFalse();
+        assertThat(module.isHardwarePresent()).isFalse();
+        verify(spass, times(1)).initialize(RuntimeEnvironment.application);
+        verify(spass, never()).isFeatureEnabled(anyInt());
+    }
+
+    @Test
+    public void featureCheckFailure_remembered() throws Exception {
+        when(spass.isFeatureEnabled(Spass.DEVICE_FINGERPRINT)).thenThrow(new IllegalStateException());
+        final SpassReprintModule module = createModule();
+
+        assertThat(module.isHardwarePresent()).isFalse();
+        assertThat(module.hasFingerprintRegistered()).isFalse();
+        assertThat(module.isHardwarePresent()).isFalse();
+        verify(spass, times(1)).isFeatureEnabled(Spass.DEVICE_FINGERPRINT);
+        verify(spass, times(1)).initialize(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void authenticate_timeoutRestartsReuseCallback() throws Exception {
+        final int restarts = 50;
+        when(spassFingerprint.hasRegisteredFinger()).thenReturn(true);
+        final SpassReprintModule module = createModule();
+        module.authenticate(new CancellationSignal(), listener, RestartPredicates.restartTimeouts(restarts));
+
+        final ArgumentCaptor<SpassFingerprint.IdentifyListener> callbacks =
+                ArgumentCaptor.forClass(SpassFingerprint.IdentifyListener.class);
+        for (int i = 0; i <= restarts; i++) {
+            verify(spassFingerprint, times(i + 1)).startIdentify(callbacks.capture());
+            callbacks.getValue().onFinished(SpassFingerprint.STATUS_TIMEOUT_FAILED);
+        }
+
+        assertThat(new HashSet<>(callbacks.getAllValues())).hasSize(1);
+        verify(listener).onFailure(eq(AuthenticationFailureReason.TIMEOUT), eq(true), any(CharSequence.class),
+                eq(SpassReprintModule.TAG), eq(SpassReprintModule.STATUS_TIMEOUT_FAILED));
+    }
+}
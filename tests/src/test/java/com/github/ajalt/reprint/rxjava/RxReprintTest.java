@@ -82,4 +82,14 @@ public class RxReprintTest {
         ts.unsubscribe();
         assertTrue(module.cancellationSignal.isCanceled());
     }
+
+    @Test
+    public void identicalFailures_shareInstance() throws Exception {
+        ts.requestMore(2);
+        module.listener.onFailure(AuthenticationFailureReason.AUTHENTICATION_FAILED, false, "Not recognized", module.TAG, 0);
+        module.listener.onFailure(AuthenticationFailureReason.AUTHENTICATION_FAILED, false, "Not recognized", module.TAG, 0);
+        final List<AuthenticationResult> events = ts.getOnNextEvents();
+        assertEquals(events.size(), 2);
+        assertTrue(events.get(0) == events.get(1));
+    }
 }
@@ -1,30 +1,41 @@
 package com.github.ajalt.reprint.testing;
 
 import com.github.ajalt.reprint.core.AuthenticationListener;
+import com.github.ajalt.reprint.core.LockoutReportingModule;
 import com.github.ajalt.reprint.core.Reprint;
-import com.github.ajalt.reprint.core.ReprintModule;
 
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import androidx.core.os.CancellationSignal;
 
-public class TestReprintModule implements ReprintModule {
+public class TestReprintModule implements LockoutReportingModule {
+    /** The error code that this module reports lockouts with. */
+    public static final int LOCKOUT_CODE = 7;
     public final int TAG = new Random().nextInt(); // Register a new module each test
     public CancellationSignal cancellationSignal;
     public AuthenticationListener listener;
     public Reprint.RestartPredicate restartPredicate;
+    public int hardwarePresentCalls;
+    public int fingerprintRegisteredCalls;
+    /** The signals from every authenticate call, in the order the calls were made. */
+    public final List<CancellationSignal> cancellationSignals = new CopyOnWriteArrayList<>();
 
     @Override public boolean isHardwarePresent() {
+        hardwarePresentCalls++;
         return true;
     }
 
     @Override public boolean hasFingerprintRegistered() {
+        fingerprintRegisteredCalls++;
         return true;
     }
 
     @Override
     public void authenticate(CancellationSignal cancellationSignal, AuthenticationListener listener, Reprint.RestartPredicate restartPredicate) {
         this.cancellationSignal = cancellationSignal;
+        this.cancellationSignals.add(cancellationSignal);
         this.listener = listener;
         this.restartPredicate = restartPredicate;
     }
@@ -32,4 +43,8 @@ public class TestReprintModule implements ReprintModule {
     @Override public int tag() {
         return TAG;
     }
+
+    @Override public boolean isLockoutCode(int errorCode) {
+        return errorCode == LOCKOUT_CODE;
+    }
 }
@@ -0,0 +1,28 @@
+package com.github.ajalt.reprint.testing;
+
+import android.content.Context;
+
+import com.github.ajalt.reprint.core.Reprint;
+import com.github.ajalt.reprint.core.ReprintModule;
+import com.github.ajalt.reprint.core.ReprintModuleProvider;
+
+/**
+ * Listed in META-INF/services so that module discovery can be tested. It only creates a module
+ * when a test sets {@link #module}, so it doesn't change the behavior of other tests that
+ * initialize Reprint.
+ */
+public class TestReprintModuleProvider implements ReprintModuleProvider {
+    public static final int TAG = 1000;
+    /** The module to create, which should have {@link #TAG} as its tag, or null. */
+    public static volatile ReprintModule module;
+
+    @Override
+    public int tag() {
+        return TAG;
+    }
+
+    @Override
+    public ReprintModule create(Context context, Reprint.Logger logger) {
+        return module;
+    }
+}